@@ -0,0 +1,44 @@
+package in.arcadelabs.labaide.benchmark;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.clock.ManualCooldownClock;
+import in.arcadelabs.labaide.cooldown.clock.MonotonicCooldownClock;
+import in.arcadelabs.labaide.cooldown.clock.TickCachedCooldownClock;
+
+/**
+ * The clocks the cooldown providers are benchmarked with. The tick cached clock is never ticked during a measurement,
+ * which leaves exactly the volatile read a check costs on a server.
+ */
+public enum ClockSource {
+
+  SYSTEM {
+    @Override
+    public CooldownClock create() {
+      return CooldownClock.system();
+    }
+  },
+
+  MONOTONIC {
+    @Override
+    public CooldownClock create() {
+      return new MonotonicCooldownClock();
+    }
+  },
+
+  TICK_CACHED {
+    @Override
+    public CooldownClock create() {
+      return new TickCachedCooldownClock();
+    }
+  },
+
+  MANUAL {
+    @Override
+    public CooldownClock create() {
+      return new ManualCooldownClock(System.currentTimeMillis());
+    }
+  };
+
+  public abstract CooldownClock create();
+
+}
@@ -0,0 +1,36 @@
+package in.arcadelabs.labaide.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar, runs every benchmark once per thread count.
+ * <p>
+ * Build it with {@code mvn -P benchmarks -pl benchmark-aide -am package} and run it with
+ * {@code java -jar benchmark-aide/target/benchmarks.jar}. Nothing touches the network, so once the dependencies are in
+ * the local repository it builds and runs with {@code mvn -o} as well.
+ * <p>
+ * The thread counts default to 1, 4 and 8 and can be overridden with {@code -Dthreads=1,2,16}, the arguments are passed
+ * to JMH (e.g. {@code -p keyCount=1000 isInCooldown}).
+ */
+public final class CooldownBenchmarks {
+
+  private CooldownBenchmarks() {
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    for (String value : System.getProperty("threads", "1,4,8").split(",")) {
+      int threads = Integer.parseInt(value.trim());
+      OptionsBuilder options = new OptionsBuilder();
+      options.parent(commandLine).threads(threads);
+      // The sweep runs on the single ticker thread in production, measuring it once is enough
+      if (threads > 1)
+        options.exclude(CooldownSweepBenchmark.class.getSimpleName());
+      new Runner(options.build()).run();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package in.arcadelabs.labaide.benchmark;
+
+import in.arcadelabs.labaide.cooldown.NonTickedCooldown;
+import in.arcadelabs.labaide.cooldown.TickedCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cooldown providers under benchmark. Ticked ones get an interval long enough for the background ticker to never
+ * run during a measurement, the sweep itself is benchmarked by calling {@link TickedCooldown#run()} directly.
+ */
+public enum CooldownImplementation {
+
+  NON_TICKED {
+    @Override
+    public AbstractCooldown<Integer> create(CooldownClock clock) {
+      return new NonTickedCooldown.NonTickedCooldownBuilder<Integer>()
+          .withDefaultExpiryTime(1L)
+          .withDefaultExpiryTimeUnit(TimeUnit.HOURS)
+          .withClock(clock)
+          .build();
+    }
+  },
+
+  TICKED {
+    @Override
+    public AbstractCooldown<Integer> create(CooldownClock clock) {
+      return new TickedCooldown.TickedCooldownBuilder<Integer>()
+          .withDefaultExpiryTime(1L)
+          .withDefaultExpiryTimeUnit(TimeUnit.HOURS)
+          .withClock(clock)
+          .withCooldownTickInterval(1L)
+          .withCooldownTickTimeUnit(TimeUnit.DAYS)
+          .build();
+    }
+  };
+
+  public abstract AbstractCooldown<Integer> create(CooldownClock clock);
+
+  public AbstractCooldown<Integer> create() {
+    return this.create(CooldownClock.system());
+  }
+
+}
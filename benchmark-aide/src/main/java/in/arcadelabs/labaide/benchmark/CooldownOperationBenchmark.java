@@ -0,0 +1,105 @@
+package in.arcadelabs.labaide.benchmark;
+
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of the hot path operations, over a populated cooldown.
+ * <p>
+ * {@code hitRatio} is the share of probed keys that are in cooldown, the others were never set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CooldownOperationBenchmark {
+
+  private static final int PROBE_COUNT = 1 << 16;
+
+  @Benchmark
+  public boolean isInCooldown(CooldownState state, ProbeState probe) {
+    return state.cooldown.isInCooldown(probe.next(state));
+  }
+
+  @Benchmark
+  public long getRemainingTime(CooldownState state, ProbeState probe) {
+    return state.cooldown.getRemainingTime(probe.next(state), TimeUnit.MILLISECONDS);
+  }
+
+  @Benchmark
+  public void setCooldown(CooldownState state, ProbeState probe) {
+    state.cooldown.setCooldown(probe.next(state));
+  }
+
+  @State(Scope.Benchmark)
+  public static class CooldownState {
+
+    @Param
+    public CooldownImplementation implementation;
+
+    @Param
+    public ClockSource clock;
+
+    @Param({"1000", "100000", "1000000"})
+    public int keyCount;
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double hitRatio;
+
+    AbstractCooldown<Integer> cooldown;
+    Integer[] probes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      this.cooldown = this.implementation.create(this.clock.create());
+      for (int key = 0; key < this.keyCount; key++) {
+        this.cooldown.setCooldown(key);
+      }
+
+      // Keys are boxed up front so the measurement does not include boxing
+      SplittableRandom random = new SplittableRandom(42L);
+      this.probes = new Integer[PROBE_COUNT];
+      for (int i = 0; i < PROBE_COUNT; i++) {
+        int key = random.nextInt(this.keyCount);
+        this.probes[i] = random.nextDouble() < this.hitRatio ? key : this.keyCount + key;
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      this.cooldown.flush();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ProbeState {
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      this.index = (int) (Thread.currentThread().getId() * 7919L) & (PROBE_COUNT - 1);
+    }
+
+    Integer next(CooldownState state) {
+      this.index = (this.index + 1) & (PROBE_COUNT - 1);
+      return state.probes[this.index];
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package in.arcadelabs.labaide.benchmark;
+
+import in.arcadelabs.labaide.cooldown.TickedCooldown;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single {@link TickedCooldown#run()} sweep. {@code expiredRatio} is the share of keys due in that sweep,
+ * they are armed again before every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class CooldownSweepBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int keyCount;
+
+  @Param({"0.0", "0.01", "0.1"})
+  public double expiredRatio;
+
+  private TickedCooldown<Integer> cooldown;
+  private Integer[] expiring;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.cooldown = (TickedCooldown<Integer>) CooldownImplementation.TICKED.create();
+    for (int key = 0; key < this.keyCount; key++) {
+      this.cooldown.setCooldown(key);
+    }
+
+    this.expiring = new Integer[(int) (this.keyCount * this.expiredRatio)];
+    int stride = this.expiring.length == 0 ? 1 : this.keyCount / this.expiring.length;
+    for (int i = 0; i < this.expiring.length; i++) {
+      this.expiring[i] = i * stride;
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void armExpiring() {
+    for (Integer key : this.expiring) {
+      this.cooldown.setCooldown(key, 0L, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.cooldown.flush();
+  }
+
+  @Benchmark
+  public void sweep() {
+    this.cooldown.run();
+  }
+}
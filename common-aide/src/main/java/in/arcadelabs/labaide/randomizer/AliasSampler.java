@@ -0,0 +1,221 @@
+/*
+ *                LabAide - Common utility library for our products.
+ *                Copyright (C) 2022  ArcadeLabs Production.
+ *
+ *       This program is free software: you can redistribute it and/or modify
+ *       it under the terms of the GNU General Public License as published by
+ *       the Free Software Foundation, either version 3 of the License, or
+ *       (at your option) any later version.
+ *
+ *       This program is distributed in the hope that it will be useful,
+ *       but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *       MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *       GNU General Public License for more details.
+ *
+ *       You should have received a copy of the GNU General Public License
+ *       along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package in.arcadelabs.labaide.randomizer;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Compiled, immutable form of a {@link ProbabilityCollection}, drawing an element in constant time without allocating.
+ * <br>
+ * <br>
+ * <b>Selection Algorithm Implementation</b> (Vose's alias method):
+ * <p>
+ * <ul>
+ * <li>Every element gets a column of the same height, the average probability share
+ * <li>Elements with a smaller share fill the rest of their column with the excess of an element with a larger share,
+ * its "alias"
+ * <li>A random column is selected, then a random height within it
+ * <li>Below the share of the column's own element, that element is selected, above it the alias is
+ * </ul>
+ * </p>
+ * Building the table takes linear time, so it is meant for collections that are sampled far more often than they are
+ * changed. It is safe to share between threads, as long as every thread uses its own {@link SplittableRandom}.
+ *
+ * @param <E> Type of elements
+ */
+@SuppressWarnings("unused")
+public final class AliasSampler<E> {
+
+  private final Object[] elements;
+  private final double[] probability;
+  private final int[] alias;
+
+  /**
+   * @param elements The elements, in the order of their indexes
+   * @param weights  Probability share of each element, all greater than 0
+   * @param size     How many elements of the arrays to use
+   */
+  AliasSampler(Object[] elements, long[] weights, int size) {
+    if (size <= 0) {
+      throw new IllegalStateException("Cannot compile an empty collection");
+    }
+
+    this.elements = new Object[size];
+    this.probability = new double[size];
+    this.alias = new int[size];
+    System.arraycopy(elements, 0, this.elements, 0, size);
+
+    double total = 0;
+    for (int i = 0; i < size; i++) {
+      total += weights[i];
+    }
+
+    // Shares scaled so the average is 1, split into the ones below and above the average
+    double[] scaled = new double[size];
+    int[] small = new int[size];
+    int[] large = new int[size];
+    int smallCount = 0;
+    int largeCount = 0;
+    for (int i = 0; i < size; i++) {
+      scaled[i] = weights[i] * size / total;
+      if (scaled[i] < 1.0) {
+        small[smallCount++] = i;
+      } else {
+        large[largeCount++] = i;
+      }
+    }
+
+    while (smallCount > 0 && largeCount > 0) {
+      int less = small[--smallCount];
+      int more = large[--largeCount];
+
+      this.probability[less] = scaled[less];
+      this.alias[less] = more;
+
+      scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+      if (scaled[more] < 1.0) {
+        small[smallCount++] = more;
+      } else {
+        large[largeCount++] = more;
+      }
+    }
+
+    // Whatever is left is 1 up to rounding errors
+    while (largeCount > 0) {
+      int index = large[--largeCount];
+      this.probability[index] = 1.0;
+      this.alias[index] = index;
+    }
+    while (smallCount > 0) {
+      int index = small[--smallCount];
+      this.probability[index] = 1.0;
+      this.alias[index] = index;
+    }
+  }
+
+  /**
+   * @return Number of elements in the table
+   */
+  public int size() {
+    return this.elements.length;
+  }
+
+  /**
+   * @param index Index of the element, as returned by {@link #sampleIndex(SplittableRandom)}
+   * @return <E> The element at the given index
+   */
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    return (E) this.elements[index];
+  }
+
+  /**
+   * Get the index of a random element, based on probability.
+   *
+   * @param random The random number generator to draw with
+   * @return Index of the random element, in the iteration order of the compiled collection
+   */
+  public int sampleIndex(SplittableRandom random) {
+    int column = random.nextInt(this.elements.length);
+    return random.nextDouble() < this.probability[column] ? column : this.alias[column];
+  }
+
+  /**
+   * Get a random element, based on probability.
+   *
+   * @param random The random number generator to draw with
+   * @return <E> Random element
+   */
+  public E sample(SplittableRandom random) {
+    return this.get(this.sampleIndex(random));
+  }
+
+  /**
+   * Fill the first n slots of the given array with the indexes of random elements, based on probability.
+   *
+   * @param random The random number generator to draw with
+   * @param n      How many elements to draw
+   * @param out    The array to write the indexes into
+   * @throws IllegalArgumentException if n < 0 or n > out.length
+   */
+  public void sampleIndices(SplittableRandom random, int n, int[] out) {
+    checkBatch(n, out.length);
+
+    double[] probability = this.probability;
+    int[] alias = this.alias;
+    int size = probability.length;
+    for (int i = 0; i < n; i++) {
+      int column = random.nextInt(size);
+      out[i] = random.nextDouble() < probability[column] ? column : alias[column];
+    }
+  }
+
+  /**
+   * Fill the first n slots of the given array with random elements, based on probability.
+   *
+   * @param random The random number generator to draw with
+   * @param n      How many elements to draw
+   * @param out    The array to write the elements into
+   * @throws IllegalArgumentException if n < 0 or n > out.length
+   */
+  @SuppressWarnings("unchecked")
+  public void sample(SplittableRandom random, int n, E[] out) {
+    checkBatch(n, out.length);
+
+    Object[] elements = this.elements;
+    double[] probability = this.probability;
+    int[] alias = this.alias;
+    int size = probability.length;
+    for (int i = 0; i < n; i++) {
+      int column = random.nextInt(size);
+      out[i] = (E) elements[random.nextDouble() < probability[column] ? column : alias[column]];
+    }
+  }
+
+  /**
+   * Get an endless, lazy stream of the indexes of random elements, based on probability. The stream draws with the
+   * given random number generator, so it must not be made parallel.
+   *
+   * @param random The random number generator to draw with
+   * @return Stream of indexes
+   */
+  public IntStream indexStream(SplittableRandom random) {
+    return IntStream.generate(() -> this.sampleIndex(random));
+  }
+
+  /**
+   * Get an endless, lazy stream of random elements, based on probability. The stream draws with the given random number
+   * generator, so it must not be made parallel.
+   *
+   * @param random The random number generator to draw with
+   * @return Stream of elements
+   */
+  public Stream<E> stream(SplittableRandom random) {
+    return this.indexStream(random).mapToObj(this::get);
+  }
+
+  static void checkBatch(int n, int length) {
+    if (n < 0 || n > length) {
+      throw new IllegalArgumentException("Cannot draw " + n + " elements into an array of length " + length);
+    }
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ *                LabAide - Common utility library for our products.
+ *                Copyright (C) 2022  ArcadeLabs Production.
+ *
+ *       This program is free software: you can redistribute it and/or modify
+ *       it under the terms of the GNU General Public License as published by
+ *       the Free Software Foundation, either version 3 of the License, or
+ *       (at your option) any later version.
+ *
+ *       This program is distributed in the hope that it will be useful,
+ *       but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *       MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *       GNU General Public License for more details.
+ *
+ *       You should have received a copy of the GNU General Public License
+ *       along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package in.arcadelabs.labaide.randomizer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe ProbabilityCollection, for sampling from async threads such as chunk generation or loot tables.
+ * <p>
+ * The elements are kept in an immutable snapshot, compiled into an {@link AliasSampler} and published through a
+ * volatile field. Every change copies the snapshot and publishes the new one, readers never lock and never see a
+ * change halfway through. Every thread draws with its own {@link SplittableRandom}, split off the one of the
+ * collection the first time it samples, so threads share nothing but the snapshot.
+ * <p>
+ * Changes take linear time, the collection is meant to be changed rarely and sampled often.
+ *
+ * @param <E> Type of elements
+ */
+@SuppressWarnings("unused")
+public final class ConcurrentProbabilityCollection<E> {
+
+  private static final Snapshot<?> EMPTY = new Snapshot<>(new Object[0], new long[0], null);
+
+  private final SplittableRandom seed = new SplittableRandom();
+  private final ThreadLocal<SplittableRandom> random = ThreadLocal.withInitial(this::split);
+  private final Object writeLock = new Object();
+
+  private volatile Snapshot<E> snapshot;
+
+  /**
+   * Construct a new Concurrent Probability Collection
+   */
+  @SuppressWarnings("unchecked")
+  public ConcurrentProbabilityCollection() {
+    this.snapshot = (Snapshot<E>) EMPTY;
+  }
+
+  /**
+   * Construct a new Concurrent Probability Collection holding the elements of the given collection
+   *
+   * @param source The collection to copy the elements and their probability from
+   */
+  public ConcurrentProbabilityCollection(ProbabilityCollection<E> source) {
+    Object[] elements = new Object[source.size()];
+    long[] weights = new long[elements.length];
+    int i = 0;
+    for (Iterator<ProbabilityCollection.ProbabilitySetElement<E>> it = source.iterator(); it.hasNext(); i++) {
+      ProbabilityCollection.ProbabilitySetElement<E> entry = it.next();
+      elements[i] = entry.getObject();
+      weights[i] = entry.getProbability();
+    }
+    this.snapshot = Snapshot.of(elements, weights);
+  }
+
+  private SplittableRandom split() {
+    synchronized (this.seed) {
+      return this.seed.split();
+    }
+  }
+
+  /**
+   * @return Number of objects inside the collection
+   */
+  public int size() {
+    return this.snapshot.elements.length;
+  }
+
+  /**
+   * @return True if collection contains no elements, else False
+   */
+  public boolean isEmpty() {
+    return this.size() == 0;
+  }
+
+  /**
+   * @return True if collection contains the object, else False
+   * @throws IllegalArgumentException if object is null
+   */
+  public boolean contains(E object) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot check if null object is contained in this collection");
+    }
+
+    for (Object element : this.snapshot.elements) {
+      if (element.equals(object)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Add an object to this collection
+   *
+   * @param probability share. Must be greater than 0.
+   * @throws IllegalArgumentException if object is null
+   * @throws IllegalArgumentException if probability <= 0
+   */
+  public void add(E object, int probability) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot add null object");
+    }
+
+    if (probability <= 0) {
+      throw new IllegalArgumentException("Probability must be greater than 0");
+    }
+
+    synchronized (this.writeLock) {
+      Snapshot<E> current = this.snapshot;
+      int size = current.elements.length;
+      Object[] elements = Arrays.copyOf(current.elements, size + 1);
+      long[] weights = Arrays.copyOf(current.weights, size + 1);
+      elements[size] = object;
+      weights[size] = probability;
+      this.snapshot = Snapshot.of(elements, weights);
+    }
+  }
+
+  /**
+   * Remove a object from this collection
+   *
+   * @return True if object was removed, else False.
+   * @throws IllegalArgumentException if object is null
+   */
+  public boolean remove(E object) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot remove null object");
+    }
+
+    synchronized (this.writeLock) {
+      Snapshot<E> current = this.snapshot;
+      Object[] elements = new Object[current.elements.length];
+      long[] weights = new long[elements.length];
+
+      // Remove all instances of the object
+      int size = 0;
+      for (int i = 0; i < elements.length; i++) {
+        if (!current.elements[i].equals(object)) {
+          elements[size] = current.elements[i];
+          weights[size++] = current.weights[i];
+        }
+      }
+
+      if (size == elements.length) {
+        return false;
+      }
+
+      this.snapshot = Snapshot.of(Arrays.copyOf(elements, size), Arrays.copyOf(weights, size));
+      return true;
+    }
+  }
+
+  /**
+   * Remove all objects from this collection
+   */
+  @SuppressWarnings("unchecked")
+  public void clear() {
+    synchronized (this.writeLock) {
+      this.snapshot = (Snapshot<E>) EMPTY;
+    }
+  }
+
+  /**
+   * Get a random object from this collection, based on probability.
+   *
+   * @return <E> Random object
+   * @throws IllegalStateException if this collection is empty
+   */
+  public E get() {
+    return this.compile().sample(this.random.get());
+  }
+
+  /**
+   * Get the sampler of the current state of this collection, later changes are not reflected in it
+   *
+   * @return The compiled sampler
+   * @throws IllegalStateException if this collection is empty
+   */
+  public AliasSampler<E> compile() {
+    AliasSampler<E> sampler = this.snapshot.sampler;
+    if (sampler == null) {
+      throw new IllegalStateException("Cannot get an object out of a empty collection");
+    }
+    return sampler;
+  }
+
+  /**
+   * Fill the first n slots of the given array with random objects from this
+   * collection, based on probability. All draws share one compiled table.
+   *
+   * @param n   How many objects to draw
+   * @param out The array to write the objects into
+   * @throws IllegalStateException    if this collection is empty
+   * @throws IllegalArgumentException if n < 0 or n > out.length
+   */
+  public void sample(int n, E[] out) {
+    this.compile().sample(this.random.get(), n, out);
+  }
+
+  /**
+   * Fill the first n slots of the given array with the indexes of random objects,
+   * based on probability. Indexes refer to {@link #compile()}, see {@link AliasSampler#get(int)}.
+   * If the collection may change meanwhile, draw from a compiled sampler instead.
+   *
+   * @param n   How many objects to draw
+   * @param out The array to write the indexes into
+   * @throws IllegalStateException    if this collection is empty
+   * @throws IllegalArgumentException if n < 0 or n > out.length
+   */
+  public void sampleIndices(int n, int[] out) {
+    this.compile().sampleIndices(this.random.get(), n, out);
+  }
+
+  /**
+   * Get an endless, lazy stream of random objects from this collection, based on
+   * probability. The stream draws from this collection as it is now, later changes
+   * are not reflected in it. It has a random number generator of its own, so it may
+   * be consumed on any thread, but it must not be made parallel.
+   *
+   * @return Stream of random objects
+   * @throws IllegalStateException if this collection is empty
+   */
+  public Stream<E> stream() {
+    return this.compile().stream(this.split());
+  }
+
+  /**
+   * Get an endless, lazy stream of the indexes of random objects, based on
+   * probability. Indexes refer to {@link #compile()} as it is now.
+   *
+   * @return Stream of random indexes
+   * @throws IllegalStateException if this collection is empty
+   */
+  public IntStream indexStream() {
+    return this.compile().indexStream(this.split());
+  }
+
+  /**
+   * @return Sum of all element's probability
+   */
+  public long getTotalProbability() {
+    long total = 0L;
+    for (long weight : this.snapshot.weights) {
+      total += weight;
+    }
+    return total;
+  }
+
+  private record Snapshot<E>(Object[] elements, long[] weights, AliasSampler<E> sampler) {
+
+    static <E> Snapshot<E> of(Object[] elements, long[] weights) {
+      AliasSampler<E> sampler = elements.length == 0 ? null : new AliasSampler<>(elements, weights, elements.length);
+      return new Snapshot<>(elements, weights, sampler);
+    }
+  }
+}
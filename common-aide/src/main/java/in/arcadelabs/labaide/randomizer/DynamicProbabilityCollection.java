@@ -0,0 +1,276 @@
+/*
+ *                LabAide - Common utility library for our products.
+ *                Copyright (C) 2022  ArcadeLabs Production.
+ *
+ *       This program is free software: you can redistribute it and/or modify
+ *       it under the terms of the GNU General Public License as published by
+ *       the Free Software Foundation, either version 3 of the License, or
+ *       (at your option) any later version.
+ *
+ *       This program is distributed in the hope that it will be useful,
+ *       but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *       MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *       GNU General Public License for more details.
+ *
+ *       You should have received a copy of the GNU General Public License
+ *       along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package in.arcadelabs.labaide.randomizer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Weighted collection for retrieving random elements based on probability, whose weights can change at any time.
+ * <br>
+ * <br>
+ * <b>Selection Algorithm Implementation</b>:
+ * <p>
+ * <ul>
+ * <li>Every element has a slot, the weights of the slots are kept in a {@link FenwickTree}
+ * <li>A random number is selected between 0 and the total weight
+ * <li>The tree is descended to the slot whose "block" of the total weight the number falls in
+ * <li>Removed elements leave their slot at weight 0, so no other element is moved, the slot is reused by the next
+ * element added
+ * </ul>
+ * </p>
+ * Adding, removing, changing the weight of and retrieving an element all take O(log n). Unlike
+ * {@link ProbabilityCollection}, elements are unique and the weights are longs.
+ *
+ * @param <E> Type of elements
+ */
+@SuppressWarnings("unused")
+public final class DynamicProbabilityCollection<E> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final Map<E, Integer> slots = new HashMap<>();
+  private final SplittableRandom random = new SplittableRandom();
+  private final FenwickTree tree;
+
+  private Object[] elements;
+  private long[] weights;
+  private int[] freeSlots;
+  private int freeCount;
+  private int usedSlots;
+  private int[] drawn = new int[0];
+
+  /**
+   * Construct a new Dynamic Probability Collection
+   */
+  public DynamicProbabilityCollection() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Construct a new Dynamic Probability Collection
+   *
+   * @param initialCapacity How many elements the collection holds before it has to grow
+   */
+  public DynamicProbabilityCollection(int initialCapacity) {
+    int capacity = Math.max(initialCapacity, 1);
+    this.elements = new Object[capacity];
+    this.weights = new long[capacity];
+    this.freeSlots = new int[capacity];
+    this.tree = new FenwickTree(capacity);
+  }
+
+  /**
+   * @return Number of objects inside the collection
+   */
+  public int size() {
+    return this.slots.size();
+  }
+
+  /**
+   * @return True if collection contains no elements, else False
+   */
+  public boolean isEmpty() {
+    return this.slots.isEmpty();
+  }
+
+  /**
+   * @return True if collection contains the object, else False
+   * @throws IllegalArgumentException if object is null
+   */
+  public boolean contains(E object) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot check if null object is contained in this collection");
+    }
+
+    return this.slots.containsKey(object);
+  }
+
+  /**
+   * Add an object to this collection
+   *
+   * @param weight share. Must be greater than 0.
+   * @throws IllegalArgumentException if object is null or already in this collection
+   * @throws IllegalArgumentException if weight <= 0 or the total weight would overflow
+   */
+  public void add(E object, long weight) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot add null object");
+    }
+
+    checkWeight(weight, this.tree.total());
+    if (this.slots.containsKey(object)) {
+      throw new IllegalArgumentException("Object is already in this collection, update its weight instead");
+    }
+
+    int slot = this.freeCount > 0 ? this.freeSlots[--this.freeCount] : this.nextSlot();
+    this.slots.put(object, slot);
+    this.elements[slot] = object;
+    this.weights[slot] = weight;
+    this.tree.add(slot, weight);
+  }
+
+  private int nextSlot() {
+    if (this.usedSlots == this.elements.length) {
+      int capacity = this.elements.length * 2;
+      this.elements = Arrays.copyOf(this.elements, capacity);
+      this.weights = Arrays.copyOf(this.weights, capacity);
+      this.freeSlots = Arrays.copyOf(this.freeSlots, capacity);
+      this.tree.grow(capacity, this.weights, this.usedSlots);
+    }
+    return this.usedSlots++;
+  }
+
+  private static void checkWeight(long weight, long total) {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("Weight must be greater than 0");
+    }
+
+    if (weight > Long.MAX_VALUE - total) {
+      throw new IllegalArgumentException("Total weight of the collection would overflow");
+    }
+  }
+
+  /**
+   * Remove an object from this collection
+   *
+   * @return True if object was removed, else False.
+   * @throws IllegalArgumentException if object is null
+   */
+  public boolean remove(E object) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot remove null object");
+    }
+
+    Integer slot = this.slots.remove(object);
+    if (slot == null) {
+      return false;
+    }
+
+    this.tree.add(slot, -this.weights[slot]);
+    this.elements[slot] = null;
+    this.weights[slot] = 0L;
+    this.freeSlots[this.freeCount++] = slot;
+    return true;
+  }
+
+  /**
+   * Change the weight of an object in this collection
+   *
+   * @param weight new share. Must be greater than 0.
+   * @return True if the weight was changed, else False if the object is not in this collection
+   * @throws IllegalArgumentException if object is null
+   * @throws IllegalArgumentException if weight <= 0 or the total weight would overflow
+   */
+  public boolean updateWeight(E object, long weight) {
+    if (object == null) {
+      throw new IllegalArgumentException("Cannot update null object");
+    }
+
+    Integer slot = this.slots.get(object);
+    if (slot == null) {
+      return false;
+    }
+
+    long previous = this.weights[slot];
+    checkWeight(weight, this.tree.total() - previous);
+    this.weights[slot] = weight;
+    this.tree.add(slot, weight - previous);
+    return true;
+  }
+
+  /**
+   * @return Weight of the object, or 0 if it is not in this collection
+   */
+  public long getWeight(E object) {
+    Integer slot = this.slots.get(object);
+    return slot == null ? 0L : this.weights[slot];
+  }
+
+  /**
+   * Remove all objects from this collection
+   */
+  public void clear() {
+    this.slots.clear();
+    Arrays.fill(this.elements, 0, this.usedSlots, null);
+    Arrays.fill(this.weights, 0, this.usedSlots, 0L);
+    this.tree.clear();
+    this.freeCount = 0;
+    this.usedSlots = 0;
+  }
+
+  /**
+   * Get a random object from this collection, based on probability.
+   *
+   * @return <E> Random object
+   * @throws IllegalStateException if this collection is empty
+   */
+  @SuppressWarnings("unchecked")
+  public E get() {
+    if (this.isEmpty()) {
+      throw new IllegalStateException("Cannot get an object out of a empty collection");
+    }
+
+    return (E) this.elements[this.tree.find(this.random.nextLong(this.tree.total()))];
+  }
+
+  /**
+   * Fill the first k slots of the given array with k distinct random objects, drawn
+   * one after another based on the weights of the objects not drawn yet.
+   * <p>
+   * Drawn objects are taken out of the tree and put back afterwards, so the draw
+   * takes O(k log n) and this collection is left untouched.
+   *
+   * @param k   How many distinct objects to draw
+   * @param out The array to write the objects into
+   * @throws IllegalArgumentException if k < 0, k > out.length or k > size()
+   */
+  @SuppressWarnings("unchecked")
+  public void sampleDistinct(int k, E[] out) {
+    AliasSampler.checkBatch(k, out.length);
+    if (k > this.size()) {
+      throw new IllegalArgumentException("Cannot draw " + k + " distinct objects out of a collection of size " + this.size());
+    }
+
+    if (this.drawn.length < k) {
+      this.drawn = new int[k];
+    }
+
+    int[] drawn = this.drawn;
+    for (int i = 0; i < k; i++) {
+      int slot = this.tree.find(this.random.nextLong(this.tree.total()));
+      drawn[i] = slot;
+      out[i] = (E) this.elements[slot];
+      this.tree.add(slot, -this.weights[slot]);
+    }
+    for (int i = 0; i < k; i++) {
+      this.tree.add(drawn[i], this.weights[drawn[i]]);
+    }
+  }
+
+  /**
+   * @return Sum of all element's weight
+   */
+  public long getTotalWeight() {
+    return this.tree.total();
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ *                LabAide - Common utility library for our products.
+ *                Copyright (C) 2022  ArcadeLabs Production.
+ *
+ *       This program is free software: you can redistribute it and/or modify
+ *       it under the terms of the GNU General Public License as published by
+ *       the Free Software Foundation, either version 3 of the License, or
+ *       (at your option) any later version.
+ *
+ *       This program is distributed in the hope that it will be useful,
+ *       but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *       MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *       GNU General Public License for more details.
+ *
+ *       You should have received a copy of the GNU General Public License
+ *       along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package in.arcadelabs.labaide.randomizer;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree over the weights of a collection, changing a weight and finding the element a point of the
+ * total weight falls on in logarithmic time.
+ * <p>
+ * Indexes are 0-based, the tree itself is 1-based: {@code tree[i]} holds the sum of the weights of the elements
+ * {@code i - (i & -i)} up to {@code i - 1}.
+ */
+final class FenwickTree {
+
+  private long[] tree;
+  private long total;
+
+  /**
+   * @param capacity How many elements the tree can hold before it has to grow
+   */
+  FenwickTree(int capacity) {
+    this.tree = new long[Math.max(capacity, 1) + 1];
+  }
+
+  /**
+   * Builds the tree out of the given weights in linear time
+   *
+   * @param weights Weight of each element, 0 for an empty index
+   * @param size    How many weights to use
+   */
+  FenwickTree(long[] weights, int size) {
+    this(size);
+    this.build(weights, size);
+  }
+
+  private void build(long[] weights, int size) {
+    long[] tree = this.tree;
+    long total = 0L;
+    for (int i = 1; i <= size; i++) {
+      tree[i] += weights[i - 1];
+      total += weights[i - 1];
+      int parent = i + (i & -i);
+      if (parent < tree.length) {
+        tree[parent] += tree[i];
+      }
+    }
+    this.total = total;
+  }
+
+  /**
+   * Grows the tree to the given capacity, rebuilding it out of the given weights
+   */
+  void grow(int capacity, long[] weights, int size) {
+    this.tree = new long[capacity + 1];
+    this.build(weights, size);
+  }
+
+  int capacity() {
+    return this.tree.length - 1;
+  }
+
+  /**
+   * Adds the given delta to the weight at the given index
+   */
+  void add(int index, long delta) {
+    long[] tree = this.tree;
+    for (int i = index + 1; i < tree.length; i += i & -i) {
+      tree[i] += delta;
+    }
+    this.total += delta;
+  }
+
+  /**
+   * Finds the element whose "block" of the total weight contains the given point, elements of weight 0 are never found
+   *
+   * @param point Point between 0 inclusive and {@link #total()} exclusive
+   * @return Index of the element
+   */
+  int find(long point) {
+    long[] tree = this.tree;
+    int index = 0;
+    for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+      int next = index + step;
+      if (next < tree.length && tree[next] <= point) {
+        index = next;
+        point -= tree[next];
+      }
+    }
+    return index;
+  }
+
+  long total() {
+    return this.total;
+  }
+
+  void clear() {
+    Arrays.fill(this.tree, 0L);
+    this.total = 0L;
+  }
+}
@@ -21,9 +21,10 @@ package in.arcadelabs.labaide.randomizer;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NavigableSet;
-import java.util.Objects;
 import java.util.SplittableRandom;
 import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * ProbabilityCollection for retrieving random elements based on probability.
@@ -41,6 +42,8 @@ import java.util.TreeSet;
  * selected than those with smaller probability.
  * </p>
  * </ul>
+ * {@link #get()} draws from the {@link AliasSampler} the collection compiles to, in constant time. The sampler is built
+ * on the first draw after the collection was changed.
  *
  * @param <E> Type of elements
  * @author Lewys Davies
@@ -53,6 +56,10 @@ public final class ProbabilityCollection<E> {
   private final SplittableRandom random = new SplittableRandom();
 
   private int totalProbability;
+  private AliasSampler<E> sampler;
+  private long[] weights;
+  private FenwickTree weightTree;
+  private int[] drawn = new int[0];
 
   /**
    * Construct a new Probability Collection
@@ -116,6 +123,7 @@ public final class ProbabilityCollection<E> {
 
     this.collection.add(entry);
     this.totalProbability += probability;
+    this.invalidate();
   }
 
   /**
@@ -148,6 +156,7 @@ public final class ProbabilityCollection<E> {
       for (ProbabilitySetElement<E> entry : this.collection) {
         previousIndex = entry.setIndex(previousIndex + 1) + (entry.getProbability() - 1);
       }
+      this.invalidate();
     }
 
     return removed;
@@ -159,6 +168,7 @@ public final class ProbabilityCollection<E> {
   public void clear() {
     this.collection.clear();
     this.totalProbability = 0;
+    this.invalidate();
   }
 
   /**
@@ -172,10 +182,154 @@ public final class ProbabilityCollection<E> {
       throw new IllegalStateException("Cannot get an object out of a empty collection");
     }
 
-    ProbabilitySetElement<E> toFind = new ProbabilitySetElement<>(null, 0);
-    toFind.setIndex(this.random.nextInt(1, this.totalProbability + 1));
+    return this.compile().sample(this.random);
+  }
+
+  /**
+   * Compile this collection into an immutable {@link AliasSampler}, reused until
+   * this collection is changed. Indexes of the sampler follow the iteration order
+   * of this collection.
+   *
+   * @return The compiled sampler
+   * @throws IllegalStateException if this collection is empty
+   */
+  public AliasSampler<E> compile() {
+    if (this.isEmpty()) {
+      throw new IllegalStateException("Cannot compile an empty collection");
+    }
+
+    AliasSampler<E> compiled = this.sampler;
+    if (compiled == null) {
+      Object[] elements = new Object[this.collection.size()];
+      long[] weights = new long[elements.length];
+      int i = 0;
+      for (ProbabilitySetElement<E> entry : this.collection) {
+        elements[i] = entry.getObject();
+        weights[i++] = entry.getProbability();
+      }
+      compiled = new AliasSampler<>(elements, weights, i);
+      this.sampler = compiled;
+      this.weights = weights;
+    }
+    return compiled;
+  }
+
+  // Drops the compiled tables, they are rebuilt on the next draw
+  private void invalidate() {
+    this.sampler = null;
+    this.weights = null;
+    this.weightTree = null;
+  }
+
+  /**
+   * Fill the first n slots of the given array with random objects from this
+   * collection, based on probability. All draws share one compiled table.
+   *
+   * @param n   How many objects to draw
+   * @param out The array to write the objects into
+   * @throws IllegalStateException    if this collection is empty
+   * @throws IllegalArgumentException if n < 0 or n > out.length
+   */
+  public void sample(int n, E[] out) {
+    this.compile().sample(this.random, n, out);
+  }
+
+  /**
+   * Fill the first n slots of the given array with the indexes of random objects,
+   * based on probability. Indexes refer to {@link #compile()}, see {@link AliasSampler#get(int)}.
+   *
+   * @param n   How many objects to draw
+   * @param out The array to write the indexes into
+   * @throws IllegalStateException    if this collection is empty
+   * @throws IllegalArgumentException if n < 0 or n > out.length
+   */
+  public void sampleIndices(int n, int[] out) {
+    this.compile().sampleIndices(this.random, n, out);
+  }
+
+  /**
+   * Get an endless, lazy stream of random objects from this collection, based on
+   * probability. The stream draws from this collection as it is now, later changes
+   * are not reflected in it.
+   *
+   * @return Stream of random objects
+   * @throws IllegalStateException if this collection is empty
+   */
+  public Stream<E> stream() {
+    return this.compile().stream(this.random);
+  }
+
+  /**
+   * Get an endless, lazy stream of the indexes of random objects, based on
+   * probability. Indexes refer to {@link #compile()} as it is now.
+   *
+   * @return Stream of random indexes
+   * @throws IllegalStateException if this collection is empty
+   */
+  public IntStream indexStream() {
+    return this.compile().indexStream(this.random);
+  }
+
+  /**
+   * Fill the first k slots of the given array with the indexes of k distinct
+   * entries, drawn one after another based on the probability of the entries not
+   * drawn yet. Indexes refer to {@link #compile()}, see {@link AliasSampler#get(int)}.
+   * <p>
+   * Drawn entries are taken out of a binary indexed tree over the probabilities and
+   * put back afterwards, so the draw takes O(k log n) and this collection is left
+   * untouched. An object added more than once can still be drawn once per entry.
+   *
+   * @param k   How many distinct entries to draw
+   * @param out The array to write the indexes into
+   * @throws IllegalStateException    if this collection is empty
+   * @throws IllegalArgumentException if k < 0, k > out.length or k > size()
+   */
+  public void sampleDistinctIndices(int k, int[] out) {
+    AliasSampler.checkBatch(k, out.length);
+    if (k > this.size()) {
+      throw new IllegalArgumentException("Cannot draw " + k + " distinct objects out of a collection of size " + this.size());
+    }
+
+    this.compile();
+    long[] weights = this.weights;
+    FenwickTree tree = this.weightTree;
+    if (tree == null) {
+      tree = new FenwickTree(weights, weights.length);
+      this.weightTree = tree;
+    }
+
+    for (int i = 0; i < k; i++) {
+      int index = tree.find(this.random.nextLong(tree.total()));
+      out[i] = index;
+      tree.add(index, -weights[index]);
+    }
+    for (int i = 0; i < k; i++) {
+      tree.add(out[i], weights[out[i]]);
+    }
+  }
 
-    return Objects.requireNonNull(this.collection.floor(toFind).getObject());
+  /**
+   * Fill the first k slots of the given array with k random objects of distinct
+   * entries, see {@link #sampleDistinctIndices(int, int[])}.
+   *
+   * @param k   How many distinct objects to draw
+   * @param out The array to write the objects into
+   * @throws IllegalStateException    if this collection is empty
+   * @throws IllegalArgumentException if k < 0, k > out.length or k > size()
+   */
+  public void sampleDistinct(int k, E[] out) {
+    AliasSampler.checkBatch(k, out.length);
+    if (this.drawn.length < k) {
+      this.drawn = new int[k];
+    }
+
+    int[] drawn = this.drawn;
+    this.sampleDistinctIndices(k, drawn);
+
+    AliasSampler<E> sampler = this.sampler;
+    for (int i = 0; i < k; i++) {
+      out[i] = sampler.get(drawn[i]);
+    }
   }
 
   /**
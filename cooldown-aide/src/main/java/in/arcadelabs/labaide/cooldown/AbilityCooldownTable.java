@@ -0,0 +1,393 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A cooldown table for per-player, per-ability cooldowns, without building a composite key for every check.
+ * <p>
+ * Every player is given a slot and every ability is an enum constant, the expiry times live in a single dense array
+ * of primitive longs indexed by {@code slot * abilities + ordinal}, so the abilities of a player sit next to each other.
+ * Checks by slot are a single array read which neither allocates nor takes a lock, checks by {@link UUID} add one map
+ * lookup to find the slot. Plugins checking thousands of cooldowns per tick should keep the slot of a player around,
+ * e.g. from {@link #assignSlot(UUID)} when the player joins, and release it with {@link #releaseSlot(UUID)} on quit.
+ * <p>
+ * Keys are not expired, an expiry time in the past simply reads as not in cooldown.
+ */
+public class AbilityCooldownTable<A extends Enum<A>> {
+
+  private static final long NONE = 0L;
+
+  private final int abilities;
+  private final long[] defaultExpiryDurations;
+  private final CooldownClock clock;
+  private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+  private final StampedLock resizeLock = new StampedLock();
+  //--------------------------------------------------------------------------------
+  private volatile AtomicLongArray deadlines;
+  private int[] freeSlots = new int[0];
+  private int freeCount;
+  private int nextSlot;
+
+  private AbilityCooldownTable(long[] defaultExpiryDurations, int initialPlayers, CooldownClock clock) {
+    this.abilities = defaultExpiryDurations.length;
+    this.defaultExpiryDurations = defaultExpiryDurations;
+    this.clock = clock;
+    this.deadlines = new AtomicLongArray(Math.max(initialPlayers, 1) * this.abilities);
+  }
+
+  private int index(int slot, A ability) {
+    return slot * this.abilities + ability.ordinal();
+  }
+
+  /**
+   * Gets the slot of the given player, assigning a free one if the player has none yet
+   *
+   * @param player The player to get the slot of
+   * @return Returns the slot of the player
+   */
+  public int assignSlot(UUID player) {
+    Integer slot = this.slots.get(player);
+    if (slot != null)
+      return slot;
+
+    synchronized (this.slots) {
+      slot = this.slots.get(player);
+      if (slot != null)
+        return slot;
+
+      int assigned = this.freeCount > 0 ? this.freeSlots[--this.freeCount] : this.nextSlot++;
+      this.ensureCapacity(assigned + 1);
+      this.slots.put(player, assigned);
+      return assigned;
+    }
+  }
+
+  /**
+   * Gets the slot of the given player
+   *
+   * @param player The player to get the slot of
+   * @return Returns the slot of the player, or -1 if the player has none
+   */
+  public int getSlot(UUID player) {
+    Integer slot = this.slots.get(player);
+    return slot == null ? -1 : slot;
+  }
+
+  /**
+   * Clears the cooldowns of the given player and frees its slot for another player. Slots kept around by the caller
+   * must not be used anymore afterwards
+   *
+   * @param player The player to be released
+   */
+  public void releaseSlot(UUID player) {
+    synchronized (this.slots) {
+      Integer slot = this.slots.remove(player);
+      if (slot == null)
+        return;
+
+      this.clearSlot(slot);
+      if (this.freeCount == this.freeSlots.length)
+        this.freeSlots = Arrays.copyOf(this.freeSlots, Math.max(this.freeSlots.length * 2, 8));
+      this.freeSlots[this.freeCount++] = slot;
+    }
+  }
+
+  private void ensureCapacity(int players) {
+    if (this.deadlines.length() >= players * this.abilities)
+      return;
+
+    long stamp = this.resizeLock.writeLock();
+    try {
+      AtomicLongArray current = this.deadlines;
+      int length = current.length();
+      AtomicLongArray grown = new AtomicLongArray(Math.max(length * 2, players * this.abilities));
+      for (int i = 0; i < length; i++) {
+        grown.set(i, current.get(i));
+      }
+      this.deadlines = grown;
+    } finally {
+      this.resizeLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Writes an expiry time, holding off a concurrent resize so the write is not lost in the old array
+   */
+  private void write(int slot, A ability, long expiryTime) {
+    long stamp = this.resizeLock.readLock();
+    try {
+      this.deadlines.set(this.index(slot, ability), expiryTime);
+    } finally {
+      this.resizeLock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Checks whether the given ability of the player in the given slot is in cooldown
+   *
+   * @param slot    The slot of the player
+   * @param ability The ability to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  public boolean isInCooldown(int slot, A ability) {
+    return this.getExpiryTime(slot, ability) > this.clock.currentTimeMillis();
+  }
+
+  /**
+   * Checks whether the given ability of the player is in cooldown. Returns false if the player has no slot
+   *
+   * @param player  The player to be checked
+   * @param ability The ability to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  public boolean isInCooldown(UUID player, A ability) {
+    int slot = this.getSlot(player);
+    return slot >= 0 && this.isInCooldown(slot, ability);
+  }
+
+  /**
+   * Set the given ability of the player in the given slot to cooldown with the default time of the ability
+   *
+   * @param slot    The slot of the player
+   * @param ability The ability that has to be set on Cooldown
+   */
+  public void setCooldown(int slot, A ability) {
+    this.write(slot, ability, this.clock.currentTimeMillis() + this.defaultExpiryDurations[ability.ordinal()]);
+  }
+
+  /**
+   * Set the given ability of the player in the given slot to cooldown with the specified expiry time
+   *
+   * @param slot           The slot of the player
+   * @param ability        The ability that has to be set on Cooldown
+   * @param customTime     How long does the ability should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  public void setCooldown(int slot, A ability, long customTime, TimeUnit customTimeUnit) {
+    this.write(slot, ability, this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime));
+  }
+
+  /**
+   * Set the given ability of the player to cooldown with the default time of the ability, assigning a slot to the
+   * player if needed
+   *
+   * @param player  The player
+   * @param ability The ability that has to be set on Cooldown
+   */
+  public void setCooldown(UUID player, A ability) {
+    this.setCooldown(this.assignSlot(player), ability);
+  }
+
+  /**
+   * Set the given ability of the player to cooldown with the specified expiry time, assigning a slot to the player if
+   * needed
+   *
+   * @param player         The player
+   * @param ability        The ability that has to be set on Cooldown
+   * @param customTime     How long does the ability should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  public void setCooldown(UUID player, A ability, long customTime, TimeUnit customTimeUnit) {
+    this.setCooldown(this.assignSlot(player), ability, customTime, customTimeUnit);
+  }
+
+  /**
+   * Remove the cooldown of the given ability of the player in the given slot
+   *
+   * @param slot    The slot of the player
+   * @param ability The ability whose cooldown has to be removed
+   */
+  public void removeCooldown(int slot, A ability) {
+    this.write(slot, ability, NONE);
+  }
+
+  /**
+   * Remove the cooldown of the given ability of the player, if the player has a slot
+   *
+   * @param player  The player
+   * @param ability The ability whose cooldown has to be removed
+   */
+  public void removeCooldown(UUID player, A ability) {
+    int slot = this.getSlot(player);
+    if (slot >= 0)
+      this.removeCooldown(slot, ability);
+  }
+
+  /**
+   * Remove the cooldowns of every ability of the player in the given slot
+   *
+   * @param slot The slot of the player
+   */
+  public void clearSlot(int slot) {
+    long stamp = this.resizeLock.readLock();
+    try {
+      AtomicLongArray deadlines = this.deadlines;
+      int base = slot * this.abilities;
+      for (int i = 0; i < this.abilities; i++) {
+        deadlines.set(base + i, NONE);
+      }
+    } finally {
+      this.resizeLock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Clears the cooldowns of every player and frees all the slots
+   */
+  public void clear() {
+    synchronized (this.slots) {
+      this.slots.clear();
+      this.freeCount = 0;
+      this.nextSlot = 0;
+      long stamp = this.resizeLock.writeLock();
+      try {
+        this.deadlines = new AtomicLongArray(this.deadlines.length());
+      } finally {
+        this.resizeLock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * Gets when the cooldown of the given ability of the player in the given slot expires
+   *
+   * @param slot    The slot of the player
+   * @param ability The ability
+   * @return Returns the expiry time in epoch milliseconds, or 0 if the ability was never set on cooldown
+   */
+  public long getExpiryTime(int slot, A ability) {
+    AtomicLongArray deadlines = this.deadlines;
+    int index = this.index(slot, ability);
+    return index < deadlines.length() ? deadlines.get(index) : NONE;
+  }
+
+  public long getRemainingTime(int slot, A ability, TimeUnit timeUnit) {
+    long remainingTime = this.getExpiryTime(slot, ability) - this.clock.currentTimeMillis();
+    return remainingTime <= 0L ? 0L : timeUnit.convert(remainingTime, TimeUnit.MILLISECONDS);
+  }
+
+  public long getRemainingTime(UUID player, A ability, TimeUnit timeUnit) {
+    int slot = this.getSlot(player);
+    return slot < 0 ? 0L : this.getRemainingTime(slot, ability, timeUnit);
+  }
+
+  public int getAssignedSlotCount() {
+    return this.slots.size();
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class AbilityCooldownTableBuilder<A extends Enum<A>> {
+    private final Class<A> abilityType;
+    private final long[] expiryDurations;
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private int initialPlayers;
+    private CooldownClock clock;
+
+    public AbilityCooldownTableBuilder(Class<A> abilityType) {
+      this.abilityType = abilityType;
+      this.expiryDurations = new long[abilityType.getEnumConstants().length];
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the default expiry time of the abilities that have no expiry time of their own
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public AbilityCooldownTableBuilder<A> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public AbilityCooldownTableBuilder<A> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    /**
+     * Sets the default expiry time of a single ability
+     *
+     * @param ability    the ability
+     * @param expiryTime expiry time
+     * @param unit       {@link TimeUnit} of the expiry time
+     * @return The builder
+     */
+    public AbilityCooldownTableBuilder<A> withAbilityExpiryTime(A ability, long expiryTime, TimeUnit unit) {
+      this.expiryDurations[ability.ordinal()] = unit.toMillis(expiryTime);
+      return this;
+    }
+
+    /**
+     * Sizes the table up front for the expected amount of players, so it does not have to grow while they join
+     *
+     * @param initialPlayers expected amount of players
+     * @return The builder
+     */
+    public AbilityCooldownTableBuilder<A> withInitialPlayers(int initialPlayers) {
+      this.initialPlayers = initialPlayers;
+      return this;
+    }
+
+    /**
+     * Sets the clock the cooldown table reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public AbilityCooldownTableBuilder<A> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public AbilityCooldownTableBuilder<A> withDefaultSettings() {
+      Arrays.fill(this.expiryDurations, -1L);
+      this.timeUnit = TimeUnit.SECONDS;
+      this.defaultExpiryDuration = 1L;
+      this.initialPlayers = 64;
+      this.clock = CooldownClock.system();
+      return this;
+    }
+
+    public Class<A> getAbilityType() {
+      return abilityType;
+    }
+
+    public long getDefaultExpiryDuration() {
+      return defaultExpiryDuration;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public int getInitialPlayers() {
+      return initialPlayers;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public AbilityCooldownTable<A> build() {
+      long defaultDuration = this.timeUnit.toMillis(this.defaultExpiryDuration);
+      long[] durations = this.expiryDurations.clone();
+      for (int i = 0; i < durations.length; i++) {
+        if (durations[i] < 0L)
+          durations[i] = defaultDuration;
+      }
+      return new AbilityCooldownTable<A>(durations, this.initialPlayers, this.clock);
+    }
+  }
+}
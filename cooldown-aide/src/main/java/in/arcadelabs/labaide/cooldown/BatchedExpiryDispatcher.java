@@ -0,0 +1,73 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownBatchExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryBuffer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects expired keys on the ticking thread and delivers them as one batch on the executor.
+ * <p>
+ * Two buffers are swapped back and forth, and at most one delivery task is queued at a time. Keys expiring while a
+ * batch is being delivered simply go into the next one.
+ */
+final class BatchedExpiryDispatcher<T> {
+
+  private final CooldownBatchExpiryAction<T> action;
+  private final Executor executor;
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private CooldownExpiryBuffer<T> pending = new CooldownExpiryBuffer<>();
+  private CooldownExpiryBuffer<T> spare = new CooldownExpiryBuffer<>();
+
+  /**
+   * @param executor The executor to deliver the batches on, or null to deliver them on the ticking thread
+   */
+  BatchedExpiryDispatcher(CooldownBatchExpiryAction<T> action, Executor executor) {
+    this.action = action;
+    this.executor = executor;
+  }
+
+  synchronized void add(T key) {
+    this.pending.add(key);
+  }
+
+  /**
+   * Hands the collected keys over to the executor, called at the end of every tick
+   */
+  void dispatch() {
+    synchronized (this) {
+      if (this.pending.isEmpty())
+        return;
+    }
+
+    if (this.executor == null) {
+      this.deliver();
+      return;
+    }
+
+    if (this.scheduled.compareAndSet(false, true))
+      this.executor.execute(this::deliver);
+  }
+
+  private void deliver() {
+    this.scheduled.set(false);
+
+    CooldownExpiryBuffer<T> batch;
+    synchronized (this) {
+      batch = this.pending;
+      this.pending = this.spare != null ? this.spare : new CooldownExpiryBuffer<>();
+      this.spare = null;
+    }
+
+    try {
+      if (!batch.isEmpty())
+        this.action.onKeysExpired(batch);
+    } finally {
+      batch.clear();
+      synchronized (this) {
+        this.spare = batch;
+      }
+    }
+  }
+}
@@ -0,0 +1,317 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.EvictionPolicy;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cooldown provider that never holds more than a fixed amount of keys, meant for keys that cannot be trusted such as
+ * addresses or hostnames, where a flood of new keys would otherwise grow the cache without bound.
+ * <p>
+ * Every expiry time is also pushed onto a min-heap, so the key that expires the soonest is always at hand. Writes purge
+ * the expired keys off the top of the heap and, once the provider is full, apply the {@link EvictionPolicy}. Checks
+ * stay lock free and expire keys lazily like {@link NonTickedCooldown}. Re-arming or removing a key leaves its old
+ * heap entry behind, which is skipped when it comes up and dropped when the heap gets compacted.
+ * <p>
+ * Evicted keys do not call the expiry action, they are counted in {@link #getMetrics()} instead. Keys rejected under
+ * {@link EvictionPolicy#REJECT_NEW} are not in cooldown at all and are counted apart, as rejections.
+ */
+public class BoundedCooldown<T> extends AbstractCooldown<T> {
+
+  /**
+   * Rough amount of bytes a key costs besides the key itself: the map node, the boxed expiry time and up to two heap
+   * entries, since the heap is only compacted once it holds twice as many entries as the cache
+   */
+  public static final int ENTRY_OVERHEAD_BYTES = 128;
+
+  private final PriorityQueue<HeapEntry<T>> heap = new PriorityQueue<>(Comparator.comparingLong(HeapEntry::expiryTime));
+  private final int maximumSize;
+  private final EvictionPolicy evictionPolicy;
+
+  private BoundedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, int maximumSize,
+                          EvictionPolicy evictionPolicy, CooldownClock clock) {
+    super(defaultExpiryDuration, expiryAction, clock);
+    this.maximumSize = maximumSize;
+    this.evictionPolicy = evictionPolicy;
+  }
+  //--------------------------------------------------------------------------------
+
+  /**
+   * Clears and shutdown the current cooldown provider
+   * NOTE: This should be strictly called on ScheduledCooldown, since this will handle the thread shutdown properly
+   */
+  @Override
+  public void flush() {
+    this.clear();
+  }
+
+  /**
+   * Clears all the keys in the cooldown check
+   */
+  @Override
+  public void clear() {
+    synchronized (this.heap) {
+      this.cache.clear();
+      this.heap.clear();
+    }
+    this.expiryWaiters.completeAll();
+  }
+
+  /**
+   * Checks whether a given key is in cooldown. Returns false if the key is absent
+   *
+   * @param key The key to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  @Override
+  public boolean isInCooldown(T key) {
+    return this.checkLazily(key);
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time, evicting or rejecting according to the
+   * {@link EvictionPolicy} if the provider is full
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
+    long now = this.clock.currentTimeMillis();
+    long expiryTime = now + customTimeUnit.toMillis(customTime);
+    List<HeapEntry<T>> expired;
+    synchronized (this.heap) {
+      expired = this.purge(now);
+      this.put(key, expiryTime);
+    }
+    this.notifyExpired(expired);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time, evicting or rejecting according to the
+   * {@link EvictionPolicy} if the provider is full
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    long now = this.clock.currentTimeMillis();
+    long expiryTime = now + customTimeUnit.toMillis(customTime);
+    List<HeapEntry<T>> expired;
+    synchronized (this.heap) {
+      expired = this.purge(now);
+      for (T key : keys)
+        this.put(key, expiryTime);
+    }
+    this.notifyExpired(expired);
+  }
+
+  private void put(T key, long expiryTime) {
+    if (this.cache.size() >= this.maximumSize && !this.cache.containsKey(key)) {
+      if (this.evictionPolicy == EvictionPolicy.REJECT_NEW) {
+        this.metrics.recordRejection();
+        return;
+      }
+      this.evictSoonest();
+    }
+
+    this.cache.put(key, expiryTime);
+    this.heap.add(new HeapEntry<>(key, expiryTime));
+    this.metrics.recordSet();
+    if (this.heap.size() > Math.max(this.cache.size(), this.maximumSize) * 2)
+      this.compact();
+  }
+
+  /**
+   * Removes the keys at the top of the heap that are already due, stale entries met on the way are dropped. The
+   * expiry actions are left to {@link #notifyExpired(List)} once the heap lock is released
+   *
+   * @return Returns the removed entries, or null if there were none
+   */
+  private List<HeapEntry<T>> purge(long now) {
+    List<HeapEntry<T>> expired = null;
+    HeapEntry<T> entry;
+    while ((entry = this.heap.peek()) != null && entry.expiryTime() <= now) {
+      this.heap.poll();
+      if (!this.cache.remove(entry.key(), entry.expiryTime()))
+        continue;
+
+      if (expired == null)
+        expired = new ArrayList<>();
+      expired.add(entry);
+    }
+    return expired;
+  }
+
+  private void notifyExpired(List<HeapEntry<T>> expired) {
+    if (expired == null)
+      return;
+
+    for (HeapEntry<T> entry : expired) {
+      super.notifyExpired(entry.key(), entry.expiryTime());
+    }
+  }
+
+  private void evictSoonest() {
+    HeapEntry<T> entry;
+    while ((entry = this.heap.poll()) != null) {
+      if (this.cache.remove(entry.key(), entry.expiryTime())) {
+        this.metrics.recordEviction();
+        this.expiryWaiters.complete(entry.key());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the heap from the cache, dropping the entries of keys that were re-armed or removed
+   */
+  private void compact() {
+    this.heap.clear();
+    this.cache.forEach((key, expiryTime) -> this.heap.add(new HeapEntry<>(key, expiryTime)));
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public EvictionPolicy getEvictionPolicy() {
+    return evictionPolicy;
+  }
+
+  private record HeapEntry<K>(K key, long expiryTime) {
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class BoundedCooldownBuilder<TKey> {
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+    private CooldownExpiryAction<TKey> expiryAction;
+    private int maximumSize;
+    private EvictionPolicy evictionPolicy;
+
+    public BoundedCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the default expiry time of the cooldown provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public BoundedCooldownBuilder<TKey> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public BoundedCooldownBuilder<TKey> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    public BoundedCooldownBuilder<TKey> setOnExpiryAction(CooldownExpiryAction<TKey> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public BoundedCooldownBuilder<TKey> setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    /**
+     * Sets the maximum amount of keys the cooldown provider may hold at once
+     *
+     * @param maximumSize maximum amount of keys
+     * @return The builder
+     */
+    public BoundedCooldownBuilder<TKey> withMaximumSize(int maximumSize) {
+      if (maximumSize <= 0)
+        throw new IllegalArgumentException("Maximum size must be greater than 0");
+
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Derives the maximum amount of keys from a memory budget, counting {@link #ENTRY_OVERHEAD_BYTES} plus the given
+     * key size for each key. The estimate is rough, leave some headroom
+     *
+     * @param budgetBytes  how much memory the cooldown provider may take
+     * @param keySizeBytes estimated size of a single key, e.g. about 40 bytes for a short {@link String}
+     * @return The builder
+     */
+    public BoundedCooldownBuilder<TKey> withMemoryBudget(long budgetBytes, int keySizeBytes) {
+      return this.withMaximumSize((int) Math.min(Integer.MAX_VALUE, budgetBytes / (ENTRY_OVERHEAD_BYTES + keySizeBytes)));
+    }
+
+    public BoundedCooldownBuilder<TKey> withEvictionPolicy(EvictionPolicy policy) {
+      this.evictionPolicy = policy;
+      return this;
+    }
+
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public BoundedCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public BoundedCooldownBuilder<TKey> withDefaultSettings() {
+      this.expiryAction = null;
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
+      this.defaultExpiryDuration = 1L;
+      this.maximumSize = 10_000;
+      this.evictionPolicy = EvictionPolicy.SOONEST_EXPIRY;
+      return this;
+    }
+
+    public long getDefaultExpiryDuration() {
+      return defaultExpiryDuration;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public CooldownExpiryAction<TKey> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public int getMaximumSize() {
+      return maximumSize;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+      return evictionPolicy;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public BoundedCooldown<TKey> build() {
+      return new BoundedCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction,
+          this.maximumSize, this.evictionPolicy, clock);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownScheduler;
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.IEventCounter;
+import in.arcadelabs.labaide.cooldown.abstraction.IRateLimiter;
+import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
+import in.arcadelabs.labaide.cooldown.scheduler.ExecutorCooldownScheduler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry running every ticked cooldown of a plugin from one {@link CooldownScheduler}.
+ * <p>
+ * Cooldowns registered with the same tick interval share a single scheduled task, so thirty cooldowns ticking every
+ * 200 ms cost one wakeup per 200 ms on one thread instead of thirty threads with their own timers.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * CooldownService service = new CooldownService(new BukkitCooldownScheduler(plugin));
+ * TickedCooldown<UUID> cooldown = new TickedCooldown.TickedCooldownBuilder<UUID>()
+ *     .withCooldownService(service)
+ *     .build();
+ * ...
+ * service.flush(); // onDisable
+ * }</pre>
+ */
+public class CooldownService {
+
+  private final CooldownScheduler scheduler;
+  private final Map<Long, TickGroup> groups = new ConcurrentHashMap<>();
+  private final Map<Runnable, Registration> registered = new ConcurrentHashMap<>();
+
+  public CooldownService(CooldownScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  public CooldownService() {
+    this(new ExecutorCooldownScheduler());
+  }
+
+  /**
+   * Starts ticking the given cooldown, along with every other cooldown registered with the same interval
+   *
+   * @param cooldown The cooldown to be ticked
+   * @param tickTime How often the cooldown should be ticked
+   * @param timeUnit {@link TimeUnit} of the tickTime
+   */
+  public <C extends ICooldown<?> & Runnable> void register(C cooldown, long tickTime, TimeUnit timeUnit) {
+    this.register(cooldown, cooldown::clear, tickTime, timeUnit);
+  }
+
+  /**
+   * Starts ticking the given rate limiter, along with every other ticker registered with the same interval
+   *
+   * @param rateLimiter The rate limiter to be ticked
+   * @param tickTime    How often the rate limiter should be ticked
+   * @param timeUnit    {@link TimeUnit} of the tickTime
+   */
+  public <L extends IRateLimiter<?> & Runnable> void register(L rateLimiter, long tickTime, TimeUnit timeUnit) {
+    this.register(rateLimiter, rateLimiter::clear, tickTime, timeUnit);
+  }
+
+  /**
+   * Starts ticking the given event counter, along with every other ticker registered with the same interval
+   *
+   * @param counter  The event counter to be ticked
+   * @param tickTime How often the event counter should be ticked
+   * @param timeUnit {@link TimeUnit} of the tickTime
+   */
+  public <E extends IEventCounter<?> & Runnable> void register(E counter, long tickTime, TimeUnit timeUnit) {
+    this.register(counter, counter::clear, tickTime, timeUnit);
+  }
+
+  private void register(Runnable ticker, Runnable clear, long tickTime, TimeUnit timeUnit) {
+    long tickMillis = Math.max(1L, timeUnit.toMillis(tickTime));
+    if (this.registered.putIfAbsent(ticker, new Registration(tickMillis, clear)) != null)
+      throw new CooldownServiceException("Cooldown is already registered to this service");
+
+    this.groups.compute(tickMillis, (interval, group) -> {
+      if (group == null)
+        group = new TickGroup(interval);
+      group.tickers.add(ticker);
+      return group;
+    });
+  }
+
+  /**
+   * Stops ticking the given cooldown, returns silently if it is not registered
+   *
+   * @param cooldown The cooldown to be removed from the service
+   */
+  public void unregister(Runnable cooldown) {
+    Registration registration = this.registered.remove(cooldown);
+    if (registration == null)
+      return;
+
+    this.groups.computeIfPresent(registration.tickMillis, (interval, group) -> {
+      group.tickers.remove(cooldown);
+      if (!group.tickers.isEmpty())
+        return group;
+
+      group.task.cancel();
+      return null;
+    });
+  }
+
+  /**
+   * Clears every registered cooldown and shuts the scheduler down
+   */
+  public void flush() {
+    try {
+      for (Map.Entry<Runnable, Registration> entry : this.registered.entrySet()) {
+        this.unregister(entry.getKey());
+        entry.getValue().clear.run();
+      }
+      this.scheduler.shutdown();
+    } catch (Exception e) {
+      throw new CooldownServiceException(e);
+    }
+  }
+
+  public int getRegisteredCount() {
+    return this.registered.size();
+  }
+
+  public CooldownScheduler getScheduler() {
+    return scheduler;
+  }
+
+  private record Registration(long tickMillis, Runnable clear) {
+  }
+
+  private final class TickGroup implements Runnable {
+    private final CopyOnWriteArrayList<Runnable> tickers = new CopyOnWriteArrayList<>();
+    private final CooldownScheduler.Task task;
+
+    private TickGroup(long tickMillis) {
+      this.task = CooldownService.this.scheduler.scheduleAtFixedRate(this, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+      for (Runnable ticker : this.tickers) {
+        try {
+          ticker.run();
+        } catch (RuntimeException e) {
+          // One failing cooldown must not stop the others sharing the task
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A cooldown provider that expires keys exactly when they are due instead of polling.
+ * <p>
+ * Every expiry time is pushed onto a min-heap of a single scheduler thread shared by all the instances, which sleeps
+ * until the earliest deadline and only expires the keys that are due. Re-arming a key just pushes a new deadline, the
+ * superseded one is discarded when it comes up.
+ * <p>
+ * The scheduler thread always sleeps on the system clock. With another {@link CooldownClock} a key that is due on the
+ * system clock but not yet on the clock of the provider is simply scheduled again for the remaining time.
+ */
+public class DeadlineCooldown<T> extends AbstractCooldown<T> {
+
+  private final DeadlineScheduler scheduler = DeadlineScheduler.shared();
+
+  private DeadlineCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, CooldownClock clock) {
+    super(defaultExpiryDuration, expiryAction, clock, true);
+  }
+  //--------------------------------------------------------------------------------
+
+  /**
+   * Clears and shutdown the current cooldown provider
+   * NOTE: This should be strictly called on ScheduledCooldown, since this will handle the thread shutdown properly
+   */
+  @Override
+  public void flush() {
+    this.clear();
+    this.scheduler.cancel(this);
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time and schedules its expiry
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
+    long duration = customTimeUnit.toMillis(customTime);
+    long expiryTime = this.clock.currentTimeMillis() + duration;
+    Long previous = this.cache.put(key, expiryTime);
+    this.metrics.recordSet();
+    this.scheduler.schedule(this, key, expiryTime, System.currentTimeMillis() + duration);
+    if (previous != null)
+      this.scheduler.supersede(1);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time, scheduling them in one go
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    long duration = customTimeUnit.toMillis(customTime);
+    long expiryTime = this.clock.currentTimeMillis() + duration;
+    // Read once, the keys may come from an iterable that can only be iterated a single time
+    List<T> set = new ArrayList<>();
+    int superseded = 0;
+    for (T key : keys) {
+      if (this.cache.put(key, expiryTime) != null)
+        superseded++;
+      set.add(key);
+    }
+    this.metrics.recordSets(set.size());
+    this.scheduler.scheduleAll(this, set, expiryTime, System.currentTimeMillis() + duration);
+    this.scheduler.supersede(superseded);
+  }
+
+  /**
+   * Remove a key from the cooldown if it exists in the check, else return silently
+   *
+   * @param key The key that has to be removed
+   */
+  @Override
+  public void removeCooldown(T key) {
+    if (this.cache.remove(key) == null)
+      return;
+
+    this.metrics.recordRemoval();
+    this.expiryWaiters.complete(key);
+    this.scheduler.supersede(1);
+  }
+
+  @Override
+  public void removeCooldownAll(Collection<? extends T> keys) {
+    int size = this.cache.size();
+    super.removeCooldownAll(keys);
+    this.scheduler.supersede(size - this.cache.size());
+  }
+
+  @Override
+  public void removeCooldownIf(Predicate<? super T> filter) {
+    int size = this.cache.size();
+    super.removeCooldownIf(filter);
+    this.scheduler.supersede(size - this.cache.size());
+  }
+
+  boolean isScheduled(Object key, long expiryTime) {
+    Long value = this.cache.get(key);
+    return value != null && value == expiryTime;
+  }
+
+  @SuppressWarnings("unchecked")
+  void expireScheduled(Object key, long expiryTime) {
+    // The scheduler sleeps on the system clock, a clock of our own may not have reached the expiry time yet
+    long remaining = expiryTime - this.clock.currentTimeMillis();
+    if (remaining > 0L) {
+      this.scheduler.schedule(this, key, expiryTime, System.currentTimeMillis() + remaining);
+      return;
+    }
+    super.expire((T) key, expiryTime);
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class DeadlineCooldownBuilder<TKey> {
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+    private CooldownExpiryAction<TKey> expiryAction;
+
+    public DeadlineCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the default expiry time of the cooldown provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public DeadlineCooldownBuilder<TKey> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public DeadlineCooldownBuilder<TKey> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    public DeadlineCooldownBuilder<TKey> setOnExpiryAction(CooldownExpiryAction<TKey> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public DeadlineCooldownBuilder<TKey> setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public DeadlineCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public DeadlineCooldownBuilder<TKey> withDefaultSettings() {
+      this.expiryAction = null;
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
+      this.defaultExpiryDuration = 1L;
+      return this;
+    }
+
+    public long getDefaultExpiryDuration() {
+      return defaultExpiryDuration;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public CooldownExpiryAction<TKey> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public DeadlineCooldown<TKey> build() {
+      return new DeadlineCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, clock);
+    }
+  }
+}
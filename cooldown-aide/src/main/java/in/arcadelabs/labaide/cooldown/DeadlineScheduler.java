@@ -0,0 +1,195 @@
+package in.arcadelabs.labaide.cooldown;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The single thread shared by every {@link DeadlineCooldown}.
+ * <p>
+ * Expiry times sit in a min-heap ordered by deadline. The thread sleeps until the earliest one, expires whatever is
+ * due and goes back to sleep, so nothing wakes up while no key is due. It is started on demand and exits once the heap
+ * runs empty.
+ * <p>
+ * Superseded entries (keys that got re-armed or removed) stay in the heap and turn into no-ops when they are due, the
+ * heap is compacted once they make up more than half of it.
+ */
+final class DeadlineScheduler implements Runnable {
+
+  private static final DeadlineScheduler SHARED = new DeadlineScheduler();
+  private static final int COMPACTION_THRESHOLD = 1024;
+
+  private final PriorityQueue<Deadline> queue = new PriorityQueue<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = this.lock.newCondition();
+  private final ArrayList<Deadline> due = new ArrayList<>();
+  private long sequence;
+  private int superseded;
+  private boolean running;
+
+  private DeadlineScheduler() {
+  }
+
+  static DeadlineScheduler shared() {
+    return SHARED;
+  }
+
+  void schedule(DeadlineCooldown<?> owner, Object key, long expiryTime, long dueTime) {
+    this.lock.lock();
+    try {
+      Deadline deadline = new Deadline(owner, key, expiryTime, dueTime, this.sequence++);
+      this.queue.add(deadline);
+      this.wakeUp(this.queue.peek() == deadline);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void scheduleAll(DeadlineCooldown<?> owner, Iterable<?> keys, long expiryTime, long dueTime) {
+    this.lock.lock();
+    try {
+      Deadline head = this.queue.peek();
+      for (Object key : keys) {
+        this.queue.add(new Deadline(owner, key, expiryTime, dueTime, this.sequence++));
+      }
+      this.wakeUp(this.queue.peek() != head);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  // Starts the thread if it is idle, or wakes it up if the earliest deadline changed, lock must be held
+  private void wakeUp(boolean headChanged) {
+    if (!this.running) {
+      this.running = true;
+      Thread thread = new Thread(this, "LabAide-DeadlineScheduler");
+      thread.setDaemon(true);
+      thread.start();
+    } else if (headChanged) {
+      this.available.signal();
+    }
+  }
+
+  // Called whenever scheduled keys got re-armed or removed, leaving dead entries behind
+  void supersede(int count) {
+    if (count <= 0)
+      return;
+
+    this.lock.lock();
+    try {
+      this.superseded += count;
+      if (this.superseded > COMPACTION_THRESHOLD && this.superseded > this.queue.size() / 2) {
+        this.queue.removeIf(deadline -> !deadline.isLive());
+        this.superseded = 0;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void cancel(DeadlineCooldown<?> owner) {
+    this.lock.lock();
+    try {
+      this.queue.removeIf(deadline -> deadline.owner == owner);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public void run() {
+    boolean stopped = false;
+    // Index of the first due deadline that was not handed to its owner yet
+    int next = 0;
+    try {
+      while (true) {
+        this.lock.lock();
+        try {
+          while (this.due.isEmpty()) {
+            Deadline head = this.queue.peek();
+            if (head == null) {
+              this.running = false;
+              this.superseded = 0;
+              stopped = true;
+              return;
+            }
+
+            long delay = head.dueTime - System.currentTimeMillis();
+            if (delay > 0) {
+              this.available.awaitNanos(TimeUnit.MILLISECONDS.toNanos(delay));
+              continue;
+            }
+
+            long now = System.currentTimeMillis();
+            while (head != null && head.dueTime <= now) {
+              this.due.add(this.queue.poll());
+              head = this.queue.peek();
+            }
+          }
+        } catch (InterruptedException e) {
+          this.running = false;
+          stopped = true;
+          Thread.currentThread().interrupt();
+          return;
+        } finally {
+          this.lock.unlock();
+        }
+
+        // Expiry actions run outside of the lock so that they may re-arm keys
+        for (Deadline deadline : this.due) {
+          next++;
+          try {
+            deadline.expire();
+          } catch (RuntimeException e) {
+            // A failing expiry action must not take the thread down for every other cooldown
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+          }
+        }
+        this.due.clear();
+        next = 0;
+      }
+    } finally {
+      // An Error escaped an expiry action, hand the deadlines that were not expired yet to a new thread
+      if (!stopped)
+        this.restart(next);
+    }
+  }
+
+  // Lets the next schedule, or any deadline left, start a new thread after this one died
+  private void restart(int from) {
+    this.lock.lock();
+    try {
+      for (int i = from; i < this.due.size(); i++) {
+        this.queue.add(this.due.get(i));
+      }
+      this.due.clear();
+      this.running = false;
+      if (!this.queue.isEmpty())
+        this.wakeUp(false);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  // expiryTime is read off the clock of the owner and identifies the entry, dueTime is when it is due on the system clock
+  private record Deadline(DeadlineCooldown<?> owner, Object key, long expiryTime, long dueTime,
+                          long sequence) implements Comparable<Deadline> {
+
+    boolean isLive() {
+      return this.owner.isScheduled(this.key, this.expiryTime);
+    }
+
+    void expire() {
+      this.owner.expireScheduled(this.key, this.expiryTime);
+    }
+
+    @Override
+    public int compareTo(Deadline other) {
+      int compare = Long.compare(this.dueTime, other.dueTime);
+      return compare != 0 ? compare : Long.compare(this.sequence, other.sequence);
+    }
+  }
+}
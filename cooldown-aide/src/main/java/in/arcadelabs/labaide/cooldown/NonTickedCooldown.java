@@ -1,14 +1,15 @@
 package in.arcadelabs.labaide.cooldown;
 
 import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
 import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
 
 import java.util.concurrent.TimeUnit;
 
 public class NonTickedCooldown<T> extends AbstractCooldown<T> {
 
-  private NonTickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction) {
-    super(defaultExpiryDuration, expiryAction);
+  private NonTickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, CooldownClock clock) {
+    super(defaultExpiryDuration, expiryAction, clock);
   }
   //--------------------------------------------------------------------------------
 
@@ -29,19 +30,7 @@ public class NonTickedCooldown<T> extends AbstractCooldown<T> {
    */
   @Override
   public boolean isInCooldown(T key) {
-    if (!this.cache.containsKey(key))
-      return false;
-
-    Long value = this.cache.get(key);
-    if (value == null)
-      return false;
-
-    if (isInCooldownInternal(value))
-      return true;
-
-    this.cache.remove(key);
-    super.setExpired(key);
-    return false;
+    return this.checkLazily(key);
   }
 
   //----------------------------------------------------------------------------
@@ -50,6 +39,7 @@ public class NonTickedCooldown<T> extends AbstractCooldown<T> {
   public static class NonTickedCooldownBuilder<TKey> {
     private long defaultExpiryDuration;
     private TimeUnit timeUnit;
+    private CooldownClock clock;
     private CooldownExpiryAction<TKey> expiryAction;
 
     public NonTickedCooldownBuilder() {
@@ -82,9 +72,21 @@ public class NonTickedCooldown<T> extends AbstractCooldown<T> {
       return this;
     }
 
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public NonTickedCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
     public NonTickedCooldownBuilder<TKey> withDefaultSettings() {
       this.expiryAction = null;
       this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
       this.defaultExpiryDuration = 1L;
       return this;
     }
@@ -101,8 +103,12 @@ public class NonTickedCooldown<T> extends AbstractCooldown<T> {
       return expiryAction;
     }
 
+    public CooldownClock getClock() {
+      return clock;
+    }
+
     public NonTickedCooldown<TKey> build() {
-      return new NonTickedCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction);
+      return new NonTickedCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, clock);
     }
   }
 }
@@ -0,0 +1,361 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.IEventCounter;
+import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts how many events each key did within the last window, e.g. how many hits a player landed in the last 5 seconds.
+ * <p>
+ * Every key holds a ring buffer of event counts, one per time bucket of the window, plus the running sum of the buffer.
+ * Moving on to a new bucket subtracts and zeroes the buckets that fell out of the window, so recording and counting are
+ * O(1) and no timestamp is kept per event. The window slides by whole buckets, events are forgotten up to one bucket
+ * early, so more buckets give a more exact window at the cost of memory per key.
+ * <p>
+ * Like {@link TokenBucketRateLimiter}, the keys are ticked: keys without any event left in the window are dropped from
+ * the counter and the expiry action is called for them.
+ */
+public class SlidingWindowCounter<T> implements IEventCounter<T>, Runnable {
+
+  private final Map<T, Window> windows = new ConcurrentHashMap<>();
+  private final CooldownExpiryAction<T> onExpired;
+  private final int buckets;
+  private final long bucketMillis;
+  private final CooldownClock clock;
+  //--------------------------------------------------------------------------------
+  private final long tickTime;
+  private final TimeUnit timeUnit;
+  private final CooldownService cooldownService;
+  private ScheduledExecutorService scheduledExecutorService;
+
+  /**
+   * @param buckets         How many buckets the window is split into
+   * @param bucketMillis    How many milliseconds a single bucket spans
+   * @param cooldownService The service to register the counter to, or null to use a private thread
+   * @param clock           The clock the counter reads the time from
+   */
+  public SlidingWindowCounter(int buckets, long bucketMillis, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit,
+                              CooldownService cooldownService, CooldownClock clock) {
+    if (buckets <= 0 || bucketMillis <= 0)
+      throw new CooldownServiceException("Buckets and bucket time must be greater than 0");
+
+    this.buckets = buckets;
+    this.bucketMillis = bucketMillis;
+    this.onExpired = expiryAction;
+    this.clock = clock;
+    this.tickTime = tickTime;
+    this.timeUnit = timeUnit;
+    this.cooldownService = cooldownService;
+    this.initThread();
+  }
+
+  private void initThread() {
+    if (this.cooldownService != null) {
+      this.cooldownService.register(this, this.tickTime, this.timeUnit);
+      return;
+    }
+    this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    this.scheduledExecutorService.scheduleAtFixedRate(this, this.tickTime, this.tickTime, this.timeUnit);
+  }
+
+  private long currentBucket() {
+    return Math.floorDiv(this.clock.currentTimeMillis(), this.bucketMillis);
+  }
+
+  @Override
+  public long record(T key) {
+    return this.record(key, 1);
+  }
+
+  @Override
+  public long record(T key, int events) {
+    long bucket = this.currentBucket();
+    while (true) {
+      Window window = this.windows.computeIfAbsent(key, ignored -> new Window(this.buckets, bucket));
+      synchronized (window) {
+        // Dropped by the ticker meanwhile, retry on a fresh window
+        if (window.dropped)
+          continue;
+
+        window.add(bucket, events);
+        return window.sum;
+      }
+    }
+  }
+
+  @Override
+  public long count(T key) {
+    Window window = this.windows.get(key);
+    if (window == null)
+      return 0L;
+
+    long bucket = this.currentBucket();
+    synchronized (window) {
+      if (window.dropped)
+        return 0L;
+
+      window.advance(bucket);
+      return window.sum;
+    }
+  }
+
+  @Override
+  public long getWindow(TimeUnit timeUnit) {
+    return timeUnit.convert(this.buckets * this.bucketMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void reset(T key) {
+    Window window = this.windows.remove(key);
+    if (window == null)
+      return;
+
+    synchronized (window) {
+      window.dropped = true;
+    }
+  }
+
+  @Override
+  public void clear() {
+    this.windows.keySet().forEach(this::reset);
+  }
+
+  @Override
+  public void flush() {
+    try {
+      this.clear();
+      if (this.cooldownService != null)
+        this.cooldownService.unregister(this);
+      else
+        this.scheduledExecutorService.shutdown();
+    } catch (Exception e) {
+      throw new CooldownServiceException(e);
+    }
+  }
+
+  /**
+   * Drops every key without any event left in the window and calls onExpired for it
+   *
+   * @see Runnable#run()
+   */
+  @Override
+  public void run() {
+    long bucket = this.currentBucket();
+    for (Map.Entry<T, Window> entry : this.windows.entrySet()) {
+      Window window = entry.getValue();
+      synchronized (window) {
+        if (window.dropped)
+          continue;
+
+        window.advance(bucket);
+        if (window.sum != 0L)
+          continue;
+
+        window.dropped = true;
+      }
+
+      this.windows.remove(entry.getKey(), window);
+      if (this.onExpired != null)
+        this.onExpired.onKeyExpired(entry.getKey());
+    }
+  }
+
+  public int getBuckets() {
+    return buckets;
+  }
+
+  public CooldownClock getClock() {
+    return clock;
+  }
+
+  public int size() {
+    return this.windows.size();
+  }
+
+  // The ring buffer of a key, guarded by its own monitor
+  private static final class Window {
+    private final int[] counts;
+    private long head;
+    private long sum;
+    private boolean dropped;
+
+    private Window(int buckets, long bucket) {
+      this.counts = new int[buckets];
+      this.head = bucket;
+    }
+
+    /**
+     * Moves the head on to the given bucket, zeroing the buckets that fell out of the window on the way
+     */
+    private void advance(long bucket) {
+      long gap = bucket - this.head;
+      if (gap <= 0L)
+        return;
+
+      if (gap >= this.counts.length) {
+        Arrays.fill(this.counts, 0);
+        this.sum = 0L;
+      } else {
+        for (long i = this.head + 1; i <= bucket; i++) {
+          int index = Math.floorMod(i, this.counts.length);
+          this.sum -= this.counts[index];
+          this.counts[index] = 0;
+        }
+      }
+      this.head = bucket;
+    }
+
+    private void add(long bucket, int events) {
+      this.advance(bucket);
+      // A clock that stepped back counts into the newest bucket
+      this.counts[Math.floorMod(this.head, this.counts.length)] += events;
+      this.sum += events;
+    }
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class SlidingWindowCounterBuilder<TKey> {
+    private long window;
+    private TimeUnit windowTimeUnit;
+    private int buckets;
+    private CooldownExpiryAction<TKey> expiryAction;
+
+    private long defaultTickTime;
+
+    private TimeUnit tickTimeUnit;
+
+    private CooldownService cooldownService;
+
+    private CooldownClock clock;
+
+    public SlidingWindowCounterBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets how far back the events are counted
+     *
+     * @param window   length of the window
+     * @param timeUnit {@link TimeUnit} of the window
+     * @return The builder
+     */
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withWindow(long window, TimeUnit timeUnit) {
+      this.window = window;
+      this.windowTimeUnit = timeUnit;
+      return this;
+    }
+
+    /**
+     * Sets how many buckets the window is split into, each key holds one int per bucket
+     *
+     * @param buckets amount of buckets
+     * @return The builder
+     */
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withBuckets(int buckets) {
+      this.buckets = buckets;
+      return this;
+    }
+
+    /**
+     * Sets the action called when a key has no event left in the window and was dropped from the counter
+     *
+     * @param action the expiry action
+     * @return The builder
+     */
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> setOnExpiryAction(CooldownExpiryAction<TKey> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withCooldownTickInterval(long defaultTickTime) {
+      this.defaultTickTime = defaultTickTime;
+      return this;
+    }
+
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withCooldownTickTimeUnit(TimeUnit timeUnit) {
+      this.tickTimeUnit = timeUnit;
+      return this;
+    }
+
+    /**
+     * Ticks the counter through the given service instead of starting a thread of its own
+     *
+     * @param cooldownService the service to register the counter to
+     * @return The builder
+     */
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withCooldownService(CooldownService cooldownService) {
+      this.cooldownService = cooldownService;
+      return this;
+    }
+
+    /**
+     * Sets the clock the counter reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public int getBuckets() {
+      return buckets;
+    }
+
+    public CooldownExpiryAction<TKey> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public long getDefaultTickTime() {
+      return defaultTickTime;
+    }
+
+    public TimeUnit getTickTimeUnit() {
+      return tickTimeUnit;
+    }
+
+    public CooldownService getCooldownService() {
+      return cooldownService;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public SlidingWindowCounter.SlidingWindowCounterBuilder<TKey> withDefaultSettings() {
+      this.window = 10L;
+      this.windowTimeUnit = TimeUnit.SECONDS;
+      this.buckets = 10;
+      this.expiryAction = null;
+      this.defaultTickTime = 1L;
+      this.tickTimeUnit = TimeUnit.SECONDS;
+      this.cooldownService = null;
+      this.clock = CooldownClock.system();
+      return this;
+    }
+
+    public SlidingWindowCounter<TKey> build() {
+      if (this.buckets <= 0)
+        throw new CooldownServiceException("Buckets must be greater than 0");
+
+      long bucketMillis = Math.max(1L, this.windowTimeUnit.toMillis(this.window) / this.buckets);
+      return new SlidingWindowCounter<TKey>(buckets, bucketMillis, expiryAction, defaultTickTime, tickTimeUnit, cooldownService, clock);
+    }
+  }
+}
@@ -1,12 +1,13 @@
 package in.arcadelabs.labaide.cooldown;
 
 import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownBatchExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
 import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.ExpiryDispatchMode;
 import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -16,38 +17,95 @@ public class TickedCooldown<T> extends AbstractCooldown<T> implements Runnable {
   private final long tickTime;
   //--------------------------------------------------------------------------------
   private final TimeUnit timeUnit;
-  private final HashSet<T> toBeRemoved = new HashSet<>();
-  private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+  private final CooldownService cooldownService;
+  private final BatchedExpiryDispatcher<T> batchedExpiryDispatcher;
+  private ScheduledExecutorService scheduledExecutorService;
 
-  public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit) {
-    super(defaultExpiryDuration, expiryAction);
+  /**
+   * Creates a cooldown that hands the keys expired during a tick over in one batch
+   *
+   * @param cooldownService    The service to register the cooldown to, or null to use a private thread
+   * @param batchExpiryAction  The action receiving the batches, or null to call expiryAction for each key of the batch
+   * @param batchExecutor      The executor to deliver the batches on, or null to deliver them on the ticking thread
+   */
+  public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService,
+                        CooldownBatchExpiryAction<T> batchExpiryAction, Executor batchExecutor) {
+    this(defaultExpiryDuration, expiryAction, tickTime, timeUnit, cooldownService, batchExpiryAction, batchExecutor, CooldownClock.system());
+  }
+
+  /**
+   * Creates a cooldown that hands the keys expired during a tick over in one batch, reading the time off the given clock
+   *
+   * @param cooldownService    The service to register the cooldown to, or null to use a private thread
+   * @param batchExpiryAction  The action receiving the batches, or null to call expiryAction for each key of the batch
+   * @param batchExecutor      The executor to deliver the batches on, or null to deliver them on the ticking thread
+   * @param clock              The clock the cooldown reads the time from
+   */
+  public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService,
+                        CooldownBatchExpiryAction<T> batchExpiryAction, Executor batchExecutor, CooldownClock clock) {
+    super(defaultExpiryDuration, expiryAction, clock, true);
     this.tickTime = tickTime;
     this.timeUnit = timeUnit;
+    this.cooldownService = cooldownService;
+    this.batchedExpiryDispatcher = createDispatcher(expiryAction, batchExpiryAction, batchExecutor);
     this.initThread();
   }
 
-  public TickedCooldown(long defaultExpiryDuration, long tickTime, TimeUnit timeUnit) {
-    super(defaultExpiryDuration);
+  /**
+   * Creates a cooldown reading the time off the given clock
+   *
+   * @param cooldownService The service to register the cooldown to, or null to use a private thread
+   * @param clock           The clock the cooldown reads the time from
+   */
+  public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService,
+                        CooldownClock clock) {
+    super(defaultExpiryDuration, expiryAction, clock, true);
     this.tickTime = tickTime;
     this.timeUnit = timeUnit;
+    this.cooldownService = cooldownService;
+    this.batchedExpiryDispatcher = null;
     this.initThread();
   }
 
+  /**
+   * Creates a cooldown ticked by the given service instead of a thread of its own
+   *
+   * @param cooldownService The service to register the cooldown to, or null to use a private thread
+   */
+  public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService) {
+    this(defaultExpiryDuration, expiryAction, tickTime, timeUnit, cooldownService, CooldownClock.system());
+  }
+
+  public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit) {
+    this(defaultExpiryDuration, expiryAction, tickTime, timeUnit, null);
+  }
+
+  public TickedCooldown(long defaultExpiryDuration, long tickTime, TimeUnit timeUnit) {
+    this(defaultExpiryDuration, null, tickTime, timeUnit, null);
+  }
+
   public TickedCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction) {
-    super(defaultExpiryDuration, expiryAction);
-    this.tickTime = 1L;
-    this.timeUnit = TimeUnit.SECONDS;
-    this.initThread();
+    this(defaultExpiryDuration, expiryAction, 1L, TimeUnit.SECONDS, null);
   }
 
   public TickedCooldown(long defaultExpiryDuration) {
-    super(defaultExpiryDuration);
-    this.tickTime = 1L;
-    this.timeUnit = TimeUnit.SECONDS;
-    this.initThread();
+    this(defaultExpiryDuration, null, 1L, TimeUnit.SECONDS, null);
+  }
+
+  private static <K> BatchedExpiryDispatcher<K> createDispatcher(CooldownExpiryAction<K> expiryAction, CooldownBatchExpiryAction<K> batchExpiryAction, Executor batchExecutor) {
+    if (batchExpiryAction != null)
+      return new BatchedExpiryDispatcher<>(batchExpiryAction, batchExecutor);
+    if (expiryAction != null)
+      return new BatchedExpiryDispatcher<>(keys -> keys.forEach(expiryAction::onKeyExpired), batchExecutor);
+    return null;
   }
 
   private void initThread() {
+    if (this.cooldownService != null) {
+      this.cooldownService.register(this, this.tickTime, this.timeUnit);
+      return;
+    }
+    this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
     this.scheduledExecutorService.scheduleAtFixedRate(this, 0L, this.tickTime, this.timeUnit);
   }
 
@@ -59,20 +117,27 @@ public class TickedCooldown<T> extends AbstractCooldown<T> implements Runnable {
   public void flush() {
     try {
       this.clear();
-      this.scheduledExecutorService.shutdown();
+      if (this.cooldownService != null)
+        this.cooldownService.unregister(this);
+      else
+        this.scheduledExecutorService.shutdown();
     } catch (Exception e) {
       throw new CooldownServiceException(e);
     }
   }
 
   /**
-   * Marks the element to be removed
+   * Collects the key into the current batch when expiries are batched
    *
-   * @param key The key that has to be removed
+   * @param key The key to be set as Expired
    */
   @Override
-  public void removeCooldown(T key) {
-    this.toBeRemoved.add(key);
+  protected void setExpired(T key) {
+    if (this.batchedExpiryDispatcher == null) {
+      super.setExpired(key);
+      return;
+    }
+    this.batchedExpiryDispatcher.add(key);
   }
 
   /**
@@ -86,24 +151,33 @@ public class TickedCooldown<T> extends AbstractCooldown<T> implements Runnable {
     if (isEmpty())
       return;
 
-    if (!this.toBeRemoved.isEmpty()) {
-      Iterator<T> iterator = this.toBeRemoved.iterator();
-      while (iterator.hasNext()) {
-        T next = iterator.next();
-        this.cache.remove(next);
-        iterator.remove();
+    long start = System.nanoTime();
+    RuntimeException[] failure = new RuntimeException[1];
+    // Traversing with forEach hands out the keys and values directly, the entry set would allocate an entry per key
+    this.cache.forEach((key, expiryTime) -> {
+      if (isInCooldownInternal(expiryTime))
+        return;
+
+      try {
+        super.expire(key, expiryTime);
+      } catch (RuntimeException e) {
+        // A throwing expiry action must not hold up the rest of the sweep
+        if (failure[0] == null)
+          failure[0] = e;
+        else
+          failure[0].addSuppressed(e);
       }
-    }
+    });
+    this.metrics.recordSweep(System.nanoTime() - start);
 
-    Iterator<Map.Entry<T, Long>> iterator = this.cache.entrySet().iterator();
-    while (iterator.hasNext()) {
-      Map.Entry<T, Long> entry = iterator.next();
-      if (isInCooldownInternal(entry.getValue()))
-        continue;
-
-      iterator.remove();
-      super.setExpired(entry.getKey());
+    if (failure[0] != null) {
+      // Reported rather than thrown, so that a private executor keeps ticking
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, failure[0]);
     }
+
+    if (this.batchedExpiryDispatcher != null)
+      this.batchedExpiryDispatcher.dispatch();
   }
 
   //----------------------------------------------------------------------------
@@ -112,12 +186,21 @@ public class TickedCooldown<T> extends AbstractCooldown<T> implements Runnable {
   public static class TickedCooldownBuilder<TKey> {
     private long defaultExpiryDuration;
     private TimeUnit timeUnit;
+    private CooldownClock clock;
     private CooldownExpiryAction<TKey> expiryAction;
 
     private long defaultTickTime;
 
     private TimeUnit tickTimeUnit;
 
+    private CooldownService cooldownService;
+
+    private ExpiryDispatchMode expiryDispatchMode;
+
+    private CooldownBatchExpiryAction<TKey> batchExpiryAction;
+
+    private Executor batchExecutor;
+
     public TickedCooldownBuilder() {
       this.withDefaultSettings();
     }
@@ -158,6 +241,52 @@ public class TickedCooldown<T> extends AbstractCooldown<T> implements Runnable {
       return this;
     }
 
+    /**
+     * Ticks the cooldown through the given service instead of starting a thread of its own
+     *
+     * @param cooldownService the service to register the cooldown to
+     * @return The builder
+     */
+    public TickedCooldown.TickedCooldownBuilder<TKey> withCooldownService(CooldownService cooldownService) {
+      this.cooldownService = cooldownService;
+      return this;
+    }
+
+    /**
+     * Sets how the expired keys are handed to the expiry actions, see {@link ExpiryDispatchMode}
+     *
+     * @param expiryDispatchMode the dispatch mode
+     * @return The builder
+     */
+    public TickedCooldown.TickedCooldownBuilder<TKey> withExpiryDispatchMode(ExpiryDispatchMode expiryDispatchMode) {
+      this.expiryDispatchMode = expiryDispatchMode;
+      return this;
+    }
+
+    /**
+     * Sets the action receiving the keys expired during a tick, only used in {@link ExpiryDispatchMode#BATCHED} mode.
+     * Without it the expiry action is called for each key of the batch instead
+     *
+     * @param action the batch action
+     * @return The builder
+     */
+    public TickedCooldown.TickedCooldownBuilder<TKey> setOnBatchExpiryAction(CooldownBatchExpiryAction<TKey> action) {
+      this.batchExpiryAction = action;
+      return this;
+    }
+
+    /**
+     * Sets the executor the batches are delivered on, such as the main thread:
+     * {@code task -> Bukkit.getScheduler().runTask(plugin, task)}
+     *
+     * @param batchExecutor the executor, or null to deliver on the ticking thread
+     * @return The builder
+     */
+    public TickedCooldown.TickedCooldownBuilder<TKey> withBatchExecutor(Executor batchExecutor) {
+      this.batchExecutor = batchExecutor;
+      return this;
+    }
+
     public long getDefaultExpiryDuration() {
       return defaultExpiryDuration;
     }
@@ -178,17 +307,56 @@ public class TickedCooldown<T> extends AbstractCooldown<T> implements Runnable {
       return tickTimeUnit;
     }
 
+    public CooldownService getCooldownService() {
+      return cooldownService;
+    }
+
+    public ExpiryDispatchMode getExpiryDispatchMode() {
+      return expiryDispatchMode;
+    }
+
+    public CooldownBatchExpiryAction<TKey> getBatchExpiryAction() {
+      return batchExpiryAction;
+    }
+
+    public Executor getBatchExecutor() {
+      return batchExecutor;
+    }
+
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public TickedCooldown.TickedCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
     public TickedCooldown.TickedCooldownBuilder<TKey> withDefaultSettings() {
       this.expiryAction = null;
       this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
       this.defaultExpiryDuration = 1L;
       this.defaultTickTime = 200;
-      this.timeUnit = TimeUnit.MILLISECONDS;
+      this.tickTimeUnit = TimeUnit.MILLISECONDS;
+      this.cooldownService = null;
+      this.expiryDispatchMode = ExpiryDispatchMode.IMMEDIATE;
+      this.batchExpiryAction = null;
+      this.batchExecutor = null;
       return this;
     }
 
+    public CooldownClock getClock() {
+      return clock;
+    }
+
     public TickedCooldown<TKey> build() {
-      return new TickedCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, defaultTickTime, tickTimeUnit);
+      if (this.expiryDispatchMode == ExpiryDispatchMode.BATCHED)
+        return new TickedCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, defaultTickTime, tickTimeUnit, cooldownService, batchExpiryAction, batchExecutor, clock);
+
+      return new TickedCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, defaultTickTime, tickTimeUnit, cooldownService, clock);
     }
   }
 }
@@ -0,0 +1,416 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A ticked cooldown provider backed by a hierarchical timing wheel.
+ * <p>
+ * Unlike {@link TickedCooldown}, which walks the whole cache on every tick, each key is filed into the wheel slot of
+ * the tick it expires on. A tick only visits the slot that is due (and, once every 64 ticks, re-files the entries of
+ * the next slot of the coarser level), so the cost of a tick scales with the number of keys expiring instead of the
+ * number of live keys.
+ * <p>
+ * Re-arming or removing a key does not touch the wheel, the old slot entry simply turns stale and is dropped when its
+ * slot comes due. Keys are only ever expired through a compare-and-remove on the cache, so a stale entry can never
+ * drop a renewed cooldown.
+ */
+public class TimingWheelCooldown<T> extends AbstractCooldown<T> implements Runnable {
+
+  private static final int WHEEL_BITS = 6;
+  private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  private static final int WHEEL_LEVELS = 4;
+  private static final long WHEEL_SPAN = 1L << (WHEEL_BITS * WHEEL_LEVELS);
+
+  private final long tickTime;
+  //--------------------------------------------------------------------------------
+  private final TimeUnit timeUnit;
+  private final long tickMillis;
+  private final long startTime;
+  private final Object wheelLock = new Object();
+  private final ArrayList<WheelEntry<T>>[][] wheel;
+  private ArrayList<WheelEntry<T>> spareSlot = new ArrayList<>();
+  private long currentTick;
+  private final CooldownService cooldownService;
+  private ScheduledExecutorService scheduledExecutorService;
+
+  /**
+   * Creates a cooldown reading the time off the given clock
+   *
+   * @param cooldownService The service to register the cooldown to, or null to use a private thread
+   * @param clock           The clock the cooldown reads the time from
+   */
+  public TimingWheelCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService,
+                             CooldownClock clock) {
+    super(defaultExpiryDuration, expiryAction, clock, true);
+    this.tickTime = tickTime;
+    this.timeUnit = timeUnit;
+    this.cooldownService = cooldownService;
+    this.tickMillis = Math.max(1L, timeUnit.toMillis(tickTime));
+    this.startTime = clock.currentTimeMillis();
+    this.wheel = createWheel();
+    this.initThread();
+  }
+
+  /**
+   * Creates a cooldown ticked by the given service instead of a thread of its own
+   *
+   * @param cooldownService The service to register the cooldown to, or null to use a private thread
+   */
+  public TimingWheelCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService) {
+    this(defaultExpiryDuration, expiryAction, tickTime, timeUnit, cooldownService, CooldownClock.system());
+  }
+
+  public TimingWheelCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit) {
+    this(defaultExpiryDuration, expiryAction, tickTime, timeUnit, null);
+  }
+
+  public TimingWheelCooldown(long defaultExpiryDuration, long tickTime, TimeUnit timeUnit) {
+    this(defaultExpiryDuration, null, tickTime, timeUnit, null);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K> ArrayList<WheelEntry<K>>[][] createWheel() {
+    ArrayList<WheelEntry<K>>[][] wheel = new ArrayList[WHEEL_LEVELS][WHEEL_SIZE];
+    for (ArrayList<WheelEntry<K>>[] level : wheel) {
+      for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+        level[slot] = new ArrayList<>();
+      }
+    }
+    return wheel;
+  }
+
+  private void initThread() {
+    if (this.cooldownService != null) {
+      this.cooldownService.register(this, this.tickTime, this.timeUnit);
+      return;
+    }
+    this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    this.scheduledExecutorService.scheduleAtFixedRate(this, this.tickTime, this.tickTime, this.timeUnit);
+  }
+
+  /**
+   * Clears and shutdown the current cooldown provider
+   * NOTE: This should be strictly called on ScheduledCooldown, since this will handle the thread shutdown properly
+   */
+  @Override
+  public void flush() {
+    try {
+      this.clear();
+      if (this.cooldownService != null)
+        this.cooldownService.unregister(this);
+      else
+        this.scheduledExecutorService.shutdown();
+    } catch (Exception e) {
+      throw new CooldownServiceException(e);
+    }
+  }
+
+  /**
+   * Clears all the keys in the cooldown check along with every slot of the wheel
+   */
+  @Override
+  public void clear() {
+    synchronized (this.wheelLock) {
+      super.clear();
+      for (ArrayList<WheelEntry<T>>[] level : this.wheel) {
+        for (ArrayList<WheelEntry<T>> slot : level) {
+          slot.clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time and files it into the wheel
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
+    long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    this.cache.put(key, expiryTime);
+    this.metrics.recordSet();
+    synchronized (this.wheelLock) {
+      this.schedule(new WheelEntry<>(key, expiryTime));
+    }
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time, filing them into the wheel under a single
+   * acquisition of its lock
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    int sets = 0;
+    synchronized (this.wheelLock) {
+      for (T key : keys) {
+        this.cache.put(key, expiryTime);
+        this.schedule(new WheelEntry<>(key, expiryTime));
+        sets++;
+      }
+    }
+    this.metrics.recordSets(sets);
+  }
+
+  /**
+   * Advances the wheel up to the current time, handling only the slots that became due since the last run. The due keys
+   * are only collected under the lock of the wheel, they are expired once it is released, so a slow expiry action never
+   * holds up {@link #setCooldown(Object, long, TimeUnit)}. A failing expiry action is reported to the uncaught
+   * exception handler of the thread once every due key has been expired
+   *
+   * @see Runnable#run()
+   * @see Thread#run()
+   */
+  @Override
+  public void run() {
+    long now = this.clock.currentTimeMillis();
+    long targetTick = (now - this.startTime) / this.tickMillis;
+
+    long start = System.nanoTime();
+    ArrayList<WheelEntry<T>> expired = new ArrayList<>();
+    synchronized (this.wheelLock) {
+      while (this.currentTick < targetTick) {
+        this.currentTick++;
+        this.cascade();
+        this.process(this.detach(0, (int) (this.currentTick & WHEEL_MASK)), now, expired);
+      }
+    }
+    // The entries are off the wheel already, every one of them must be expired even if an expiry action throws
+    RuntimeException failure = null;
+    for (WheelEntry<T> entry : expired) {
+      try {
+        super.expire(entry.key, entry.expiryTime);
+      } catch (RuntimeException e) {
+        if (failure == null)
+          failure = e;
+        else
+          failure.addSuppressed(e);
+      }
+    }
+    this.metrics.recordSweep(System.nanoTime() - start);
+
+    if (failure != null) {
+      // Reported rather than thrown, so that a private executor keeps ticking the wheel
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+    }
+  }
+
+  // Re-files the due slot of every coarser level whose period starts on the current tick, highest level first
+  private void cascade() {
+    for (int level = WHEEL_LEVELS - 1; level > 0; level--) {
+      int shift = WHEEL_BITS * level;
+      if ((this.currentTick & ((1L << shift) - 1)) != 0)
+        continue;
+
+      ArrayList<WheelEntry<T>> due = this.detach(level, (int) ((this.currentTick >>> shift) & WHEEL_MASK));
+      for (WheelEntry<T> entry : due) {
+        if (this.isLive(entry))
+          this.schedule(entry);
+      }
+      this.recycle(due);
+    }
+  }
+
+  // Re-files the entries of the due slot that are not due yet and collects the ones that are into expired
+  private void process(ArrayList<WheelEntry<T>> due, long now, ArrayList<WheelEntry<T>> expired) {
+    for (WheelEntry<T> entry : due) {
+      if (!this.isLive(entry))
+        continue;
+
+      if (entry.expiryTime > now) {
+        this.schedule(entry);
+        continue;
+      }
+
+      expired.add(entry);
+    }
+    this.recycle(due);
+  }
+
+  private void schedule(WheelEntry<T> entry) {
+    long expiryTick = Math.floorDiv(entry.expiryTime - this.startTime + this.tickMillis - 1, this.tickMillis);
+    long delta = expiryTick - this.currentTick;
+
+    if (delta <= 0) {
+      expiryTick = this.currentTick + 1;
+      delta = 1;
+    } else if (delta >= WHEEL_SPAN) {
+      // Beyond the reach of the top level, parked there and re-filed when that slot comes around again
+      expiryTick = this.currentTick + WHEEL_SPAN - 1;
+      delta = WHEEL_SPAN - 1;
+    }
+
+    int level = 0;
+    while (delta >= (1L << (WHEEL_BITS * (level + 1))))
+      level++;
+
+    int slot = (int) ((expiryTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+    this.wheel[level][slot].add(entry);
+  }
+
+  private ArrayList<WheelEntry<T>> detach(int level, int slot) {
+    ArrayList<WheelEntry<T>> due = this.wheel[level][slot];
+    this.wheel[level][slot] = this.spareSlot != null ? this.spareSlot : new ArrayList<>();
+    this.spareSlot = null;
+    return due;
+  }
+
+  private void recycle(ArrayList<WheelEntry<T>> slot) {
+    slot.clear();
+    if (this.spareSlot == null)
+      this.spareSlot = slot;
+  }
+
+  // An entry is stale once its key got removed or re-armed with another expiry time
+  private boolean isLive(WheelEntry<T> entry) {
+    Long expiryTime = this.cache.get(entry.key);
+    return expiryTime != null && expiryTime == entry.expiryTime;
+  }
+
+  private record WheelEntry<K>(K key, long expiryTime) {
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class TimingWheelCooldownBuilder<TKey> {
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+    private CooldownExpiryAction<TKey> expiryAction;
+
+    private long defaultTickTime;
+
+    private TimeUnit tickTimeUnit;
+
+    private CooldownService cooldownService;
+
+    public TimingWheelCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the default expiry time of the cooldown provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> setOnExpiryAction(CooldownExpiryAction<TKey> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    /**
+     * Sets the resolution of the wheel, keys expire at most one tick after their expiry time
+     *
+     * @param defaultTickTime tick interval
+     * @return The builder
+     */
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withCooldownTickInterval(long defaultTickTime) {
+      this.defaultTickTime = defaultTickTime;
+      return this;
+    }
+
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withCooldownTickTimeUnit(TimeUnit timeUnit) {
+      this.tickTimeUnit = timeUnit;
+      return this;
+    }
+
+    /**
+     * Ticks the cooldown through the given service instead of starting a thread of its own
+     *
+     * @param cooldownService the service to register the cooldown to
+     * @return The builder
+     */
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withCooldownService(CooldownService cooldownService) {
+      this.cooldownService = cooldownService;
+      return this;
+    }
+
+    public long getDefaultExpiryDuration() {
+      return defaultExpiryDuration;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public CooldownExpiryAction<TKey> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public long getDefaultTickTime() {
+      return defaultTickTime;
+    }
+
+    public TimeUnit getTickTimeUnit() {
+      return tickTimeUnit;
+    }
+
+    public CooldownService getCooldownService() {
+      return cooldownService;
+    }
+
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public TimingWheelCooldown.TimingWheelCooldownBuilder<TKey> withDefaultSettings() {
+      this.expiryAction = null;
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
+      this.defaultExpiryDuration = 1L;
+      this.defaultTickTime = 200;
+      this.tickTimeUnit = TimeUnit.MILLISECONDS;
+      this.cooldownService = null;
+      return this;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public TimingWheelCooldown<TKey> build() {
+      return new TimingWheelCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, defaultTickTime, tickTimeUnit, cooldownService, clock);
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.IRateLimiter;
+import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter: every key holds up to {@code capacity} permits, refilled at a fixed rate.
+ * <p>
+ * The state of a bucket is a single long, the time at which it will be full again (the generic cell rate algorithm).
+ * Taking permits pushes that time forward by the refill interval of each permit, so {@link #tryAcquire(Object)} is one
+ * compare-and-set on a primitive and never locks.
+ * <p>
+ * Like {@link TickedCooldown}, the keys are ticked: buckets that are full again are dropped from the limiter and the
+ * expiry action is called for their key.
+ */
+public class TokenBucketRateLimiter<T> implements IRateLimiter<T>, Runnable {
+
+  // Marks a bucket that got dropped by the ticker, acquisitions racing with it retry on a fresh bucket
+  private static final long DROPPED = Long.MIN_VALUE;
+
+  private final Map<T, Bucket> buckets = new ConcurrentHashMap<>();
+  private final CooldownExpiryAction<T> onExpired;
+  private final long capacity;
+  private final long refillNanos;
+  private final long toleranceNanos;
+  //--------------------------------------------------------------------------------
+  private final long tickTime;
+  private final TimeUnit timeUnit;
+  private final CooldownService cooldownService;
+  private ScheduledExecutorService scheduledExecutorService;
+
+  /**
+   * @param capacity        The maximum amount of permits of a key, the burst it may use at once
+   * @param refillNanos     How many nanoseconds it takes to refill a single permit
+   * @param cooldownService The service to register the limiter to, or null to use a private thread
+   */
+  public TokenBucketRateLimiter(long capacity, long refillNanos, CooldownExpiryAction<T> expiryAction, long tickTime, TimeUnit timeUnit, CooldownService cooldownService) {
+    if (capacity <= 0 || refillNanos <= 0)
+      throw new CooldownServiceException("Capacity and refill rate must be greater than 0");
+
+    this.capacity = capacity;
+    this.refillNanos = refillNanos;
+    this.toleranceNanos = Math.multiplyExact(capacity, refillNanos);
+    this.onExpired = expiryAction;
+    this.tickTime = tickTime;
+    this.timeUnit = timeUnit;
+    this.cooldownService = cooldownService;
+    this.initThread();
+  }
+
+  private void initThread() {
+    if (this.cooldownService != null) {
+      this.cooldownService.register(this, this.tickTime, this.timeUnit);
+      return;
+    }
+    this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    this.scheduledExecutorService.scheduleAtFixedRate(this, this.tickTime, this.tickTime, this.timeUnit);
+  }
+
+  @Override
+  public boolean tryAcquire(T key) {
+    return this.tryAcquire(key, 1);
+  }
+
+  @Override
+  public boolean tryAcquire(T key, int permits) {
+    if (permits <= 0)
+      return true;
+    if (permits > this.capacity)
+      return false;
+
+    long cost = permits * this.refillNanos;
+    while (true) {
+      Bucket bucket = this.buckets.computeIfAbsent(key, ignored -> new Bucket());
+      long fullAt = bucket.get();
+      if (fullAt == DROPPED)
+        continue;
+
+      long now = System.nanoTime();
+      long next = Math.max(fullAt, now) + cost;
+      if (next - now > this.toleranceNanos)
+        return false;
+      if (bucket.compareAndSet(fullAt, next))
+        return true;
+    }
+  }
+
+  @Override
+  public long getAvailablePermits(T key) {
+    Bucket bucket = this.buckets.get(key);
+    if (bucket == null)
+      return this.capacity;
+
+    long fullAt = bucket.get();
+    if (fullAt == DROPPED)
+      return this.capacity;
+
+    long now = System.nanoTime();
+    return (this.toleranceNanos - Math.max(fullAt - now, 0L)) / this.refillNanos;
+  }
+
+  @Override
+  public long getWaitTime(T key, TimeUnit timeUnit) {
+    Bucket bucket = this.buckets.get(key);
+    if (bucket == null)
+      return 0L;
+
+    long fullAt = bucket.get();
+    if (fullAt == DROPPED)
+      return 0L;
+
+    long wait = fullAt + this.refillNanos - this.toleranceNanos - System.nanoTime();
+    return wait <= 0L ? 0L : timeUnit.convert(wait, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void reset(T key) {
+    Bucket bucket = this.buckets.remove(key);
+    if (bucket != null)
+      bucket.set(DROPPED);
+  }
+
+  @Override
+  public void clear() {
+    this.buckets.keySet().forEach(this::reset);
+  }
+
+  @Override
+  public void flush() {
+    try {
+      this.clear();
+      if (this.cooldownService != null)
+        this.cooldownService.unregister(this);
+      else
+        this.scheduledExecutorService.shutdown();
+    } catch (Exception e) {
+      throw new CooldownServiceException(e);
+    }
+  }
+
+  /**
+   * Drops every bucket that is full again and calls onExpired for its key
+   *
+   * @see Runnable#run()
+   */
+  @Override
+  public void run() {
+    for (Map.Entry<T, Bucket> entry : this.buckets.entrySet()) {
+      Bucket bucket = entry.getValue();
+      long fullAt = bucket.get();
+      if (fullAt == DROPPED || fullAt - System.nanoTime() > 0L)
+        continue;
+
+      if (!bucket.compareAndSet(fullAt, DROPPED))
+        continue;
+
+      this.buckets.remove(entry.getKey(), bucket);
+      if (this.onExpired != null)
+        this.onExpired.onKeyExpired(entry.getKey());
+    }
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public long getRefillTime(TimeUnit timeUnit) {
+    return timeUnit.convert(this.refillNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public int size() {
+    return this.buckets.size();
+  }
+
+  // The time at which the bucket is full again, in System#nanoTime
+  private static final class Bucket extends AtomicLong {
+    private static final long serialVersionUID = 1L;
+
+    private Bucket() {
+      super(System.nanoTime());
+    }
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class TokenBucketRateLimiterBuilder<TKey> {
+    private long capacity;
+    private long refillPermits;
+    private long refillTime;
+    private TimeUnit refillTimeUnit;
+    private CooldownExpiryAction<TKey> expiryAction;
+
+    private long defaultTickTime;
+
+    private TimeUnit tickTimeUnit;
+
+    private CooldownService cooldownService;
+
+    public TokenBucketRateLimiterBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets how many permits a key can hold, the burst it may use at once
+     *
+     * @param capacity maximum amount of permits
+     * @return The builder
+     */
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> withCapacity(long capacity) {
+      this.capacity = capacity;
+      return this;
+    }
+
+    /**
+     * Sets how fast the permits are refilled, e.g. {@code withRefillRate(5, 1, TimeUnit.SECONDS)} for 5 per second
+     *
+     * @param permits  permits refilled
+     * @param time     per this amount of time
+     * @param timeUnit {@link TimeUnit} of the time
+     * @return The builder
+     */
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> withRefillRate(long permits, long time, TimeUnit timeUnit) {
+      this.refillPermits = permits;
+      this.refillTime = time;
+      this.refillTimeUnit = timeUnit;
+      return this;
+    }
+
+    /**
+     * Sets the action called when a key got refilled completely and was dropped from the limiter
+     *
+     * @param action the expiry action
+     * @return The builder
+     */
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> setOnExpiryAction(CooldownExpiryAction<TKey> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> withCooldownTickInterval(long defaultTickTime) {
+      this.defaultTickTime = defaultTickTime;
+      return this;
+    }
+
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> withCooldownTickTimeUnit(TimeUnit timeUnit) {
+      this.tickTimeUnit = timeUnit;
+      return this;
+    }
+
+    /**
+     * Ticks the limiter through the given service instead of starting a thread of its own
+     *
+     * @param cooldownService the service to register the limiter to
+     * @return The builder
+     */
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> withCooldownService(CooldownService cooldownService) {
+      this.cooldownService = cooldownService;
+      return this;
+    }
+
+    public long getCapacity() {
+      return capacity;
+    }
+
+    public CooldownExpiryAction<TKey> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public long getDefaultTickTime() {
+      return defaultTickTime;
+    }
+
+    public TimeUnit getTickTimeUnit() {
+      return tickTimeUnit;
+    }
+
+    public CooldownService getCooldownService() {
+      return cooldownService;
+    }
+
+    public TokenBucketRateLimiter.TokenBucketRateLimiterBuilder<TKey> withDefaultSettings() {
+      this.capacity = 1L;
+      this.refillPermits = 1L;
+      this.refillTime = 1L;
+      this.refillTimeUnit = TimeUnit.SECONDS;
+      this.expiryAction = null;
+      this.defaultTickTime = 1L;
+      this.tickTimeUnit = TimeUnit.SECONDS;
+      this.cooldownService = null;
+      return this;
+    }
+
+    public TokenBucketRateLimiter<TKey> build() {
+      if (this.refillPermits <= 0)
+        throw new CooldownServiceException("Refill rate must be greater than 0");
+
+      long refillNanos = Math.max(1L, this.refillTimeUnit.toNanos(this.refillTime) / this.refillPermits);
+      return new TokenBucketRateLimiter<TKey>(capacity, refillNanos, expiryAction, defaultTickTime, tickTimeUnit, cooldownService);
+    }
+  }
+}
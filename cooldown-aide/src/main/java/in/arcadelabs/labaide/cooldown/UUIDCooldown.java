@@ -0,0 +1,665 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryWaiters;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownVisitor;
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * A cooldown provider specialised for {@link UUID} keys.
+ * <p>
+ * Instead of a map of boxed values, every entry lives in a single open-addressed table of primitive longs laid out as
+ * {@code [mostSigBits, leastSigBits, expiryTime]}, optionally allocated off-heap. An entry costs 24 bytes of table
+ * space and checks neither allocate nor take a lock, they run as an optimistic read and only fall back to a read lock
+ * if a writer got in the way.
+ * <p>
+ * Keys are expired lazily when they are checked, like {@link NonTickedCooldown}. Running this provider (for example
+ * on a scheduler) purges every expired key and fires the expiry action for them.
+ */
+public class UUIDCooldown implements ICooldown<UUID>, Runnable {
+
+  private static final int STRIDE = 3;
+  private static final int MIN_CAPACITY = 16;
+  private static final long EMPTY = 0L;
+
+  private final CooldownExpiryAction<UUID> onExpired;
+  private final CooldownClock clock;
+  private final CooldownExpiryWaiters<UUID> expiryWaiters;
+  private final boolean offHeap;
+  private final StampedLock lock = new StampedLock();
+  //--------------------------------------------------------------------------------
+  private LongBuffer table;
+  private int mask;
+  private int size;
+  protected long defaultExpiryDuration;
+
+  private UUIDCooldown(long defaultExpiryDuration, CooldownExpiryAction<UUID> expiryAction, int initialCapacity, boolean offHeap,
+                       CooldownClock clock) {
+    this.defaultExpiryDuration = defaultExpiryDuration;
+    this.clock = clock;
+    this.expiryWaiters = new CooldownExpiryWaiters<>(this::getExpiryTime, clock);
+    this.onExpired = expiryAction;
+    this.offHeap = offHeap;
+    this.allocate(tableSizeFor(initialCapacity));
+  }
+
+  private static int tableSizeFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3L < expectedSize * 4L)
+      capacity <<= 1;
+    return capacity;
+  }
+
+  private static int hash(long mostSigBits, long leastSigBits) {
+    long h = mostSigBits ^ leastSigBits;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  private void allocate(int capacity) {
+    this.table = this.offHeap
+        ? ByteBuffer.allocateDirect(capacity * STRIDE * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+        : LongBuffer.wrap(new long[capacity * STRIDE]);
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Clears and shutdown the current cooldown provider
+   * NOTE: This should be strictly called on ScheduledCooldown, since this will handle the thread shutdown properly
+   */
+  @Override
+  public void flush() {
+    this.clear();
+  }
+
+  /**
+   * Clears all the keys in the cooldown check
+   */
+  @Override
+  public void clear() {
+    long stamp = this.lock.writeLock();
+    try {
+      this.allocate(MIN_CAPACITY);
+      this.size = 0;
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+    this.expiryWaiters.completeAll();
+  }
+
+  /**
+   * Checks whether a given key is in cooldown. Returns false if the key is absent
+   *
+   * @param key The key to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  @Override
+  public boolean isInCooldown(UUID key) {
+    long expiryTime = this.getExpiryTime(key);
+    if (expiryTime == EMPTY)
+      return false;
+
+    if (expiryTime > this.clock.currentTimeMillis())
+      return true;
+
+    this.expire(key, expiryTime);
+    return false;
+  }
+
+  /**
+   * Set the given key to cooldown with the default cooldown timer provided
+   *
+   * @param key The key that has to be set on Cooldown
+   */
+  @Override
+  public void setCooldown(UUID key) {
+    this.setCooldown(key, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(UUID key, long customTime, TimeUnit customTimeUnit) {
+    long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    long stamp = this.lock.writeLock();
+    try {
+      this.put(key.getMostSignificantBits(), key.getLeastSignificantBits(), expiryTime);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Remove a key from the cooldown if it exists in the check, else return silently
+   *
+   * @param key The key that has to be removed
+   */
+  @Override
+  public void removeCooldown(UUID key) {
+    long stamp = this.lock.writeLock();
+    try {
+      int slot = this.find(this.table, this.mask, key.getMostSignificantBits(), key.getLeastSignificantBits());
+      if (slot < 0)
+        return;
+
+      this.delete(slot);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+    this.expiryWaiters.complete(key);
+  }
+
+  /**
+   * Checks a whole batch of keys at once, under a single optimistic read. Expired keys are left for {@link #run()}
+   *
+   * @param keys   The keys to be checked
+   * @param result The set to be filled, bit {@code i} is set if {@code keys.get(i)} is in cooldown and cleared otherwise
+   * @return Returns the given result set
+   */
+  @Override
+  public BitSet isInCooldown(List<? extends UUID> keys, BitSet result) {
+    long now = this.clock.currentTimeMillis();
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      LongBuffer table = this.table;
+      int mask = table.capacity() / STRIDE - 1;
+      this.fill(keys, result, table, mask, now);
+      if (this.lock.validate(stamp))
+        return result;
+    }
+
+    stamp = this.lock.readLock();
+    try {
+      this.fill(keys, result, this.table, this.mask, now);
+      return result;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  private void fill(List<? extends UUID> keys, BitSet result, LongBuffer table, int mask, long now) {
+    for (int i = 0; i < keys.size(); i++) {
+      UUID key = keys.get(i);
+      int slot = this.find(table, mask, key.getMostSignificantBits(), key.getLeastSignificantBits());
+      result.set(i, slot >= 0 && table.get(slot * STRIDE + 2) > now);
+    }
+  }
+
+  /**
+   * Set all the given keys to cooldown with the default cooldown timer provided
+   *
+   * @param keys The keys that have to be set on Cooldown
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends UUID> keys) {
+    this.setCooldownAll(keys, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time, under a single acquisition of the lock
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends UUID> keys, long customTime, TimeUnit customTimeUnit) {
+    long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    long stamp = this.lock.writeLock();
+    try {
+      for (UUID key : keys) {
+        this.put(key.getMostSignificantBits(), key.getLeastSignificantBits(), expiryTime);
+      }
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Remove all the given keys from the cooldown under a single acquisition of the lock
+   *
+   * @param keys The keys that have to be removed
+   */
+  @Override
+  public void removeCooldownAll(Collection<? extends UUID> keys) {
+    long stamp = this.lock.writeLock();
+    try {
+      for (UUID key : keys) {
+        int slot = this.find(this.table, this.mask, key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (slot >= 0)
+          this.delete(slot);
+      }
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+
+    for (UUID key : keys) {
+      this.expiryWaiters.complete(key);
+    }
+  }
+
+  /**
+   * Remove every key matching the given filter from the cooldown, in a single pass over the table
+   *
+   * @param filter The filter selecting the keys to be removed
+   */
+  @Override
+  public void removeCooldownIf(Predicate<? super UUID> filter) {
+    List<UUID> removed = this.expiryWaiters.isEmpty() ? null : new ArrayList<>();
+    long stamp = this.lock.writeLock();
+    try {
+      for (int slot = 0; slot <= this.mask; ) {
+        int base = slot * STRIDE;
+        if (this.table.get(base + 2) == EMPTY) {
+          slot++;
+          continue;
+        }
+
+        UUID key = new UUID(this.table.get(base), this.table.get(base + 1));
+        if (!filter.test(key)) {
+          slot++;
+          continue;
+        }
+        // Deleting shifts a later entry back into this slot, so it is inspected again
+        this.delete(slot);
+        if (removed != null)
+          removed.add(key);
+      }
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+
+    if (removed != null)
+      removed.forEach(this.expiryWaiters::complete);
+  }
+
+  /**
+   * Gets a copy of all the cooldown that has been in the registry
+   *
+   * @return Returns a copy of {@link Map<UUID, Long>} instance of the original cache
+   */
+  @Override
+  public Map<UUID, Long> getAllCooldown() {
+    long stamp = this.lock.readLock();
+    try {
+      Map<UUID, Long> copy = new ConcurrentHashMap<>(Math.max(this.size, 1));
+      for (int slot = 0; slot <= this.mask; slot++) {
+        int base = slot * STRIDE;
+        long expiryTime = this.table.get(base + 2);
+        if (expiryTime != EMPTY)
+          copy.put(new UUID(this.table.get(base), this.table.get(base + 1)), expiryTime);
+      }
+      return copy;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Calls the visitor for every key that is in cooldown. Since the keys are not stored as objects a {@link UUID} is
+   * created for each of them, use {@link #forEachCooldown(UUIDVisitor)} to avoid that
+   *
+   * @param visitor The visitor to be called for each key
+   */
+  @Override
+  public void forEachCooldown(CooldownVisitor<? super UUID> visitor) {
+    this.forEachCooldown((mostSigBits, leastSigBits, expiryTime) -> visitor.visit(new UUID(mostSigBits, leastSigBits), expiryTime));
+  }
+
+  /**
+   * Calls the visitor for every key that is in cooldown with the raw halves of the key, without allocating anything.
+   * The table is read-locked meanwhile, so the visitor must not change this cooldown
+   *
+   * @param visitor The visitor to be called for each key
+   */
+  public void forEachCooldown(UUIDVisitor visitor) {
+    long now = this.clock.currentTimeMillis();
+    long stamp = this.lock.readLock();
+    try {
+      for (int slot = 0; slot <= this.mask; slot++) {
+        int base = slot * STRIDE;
+        long expiryTime = this.table.get(base + 2);
+        if (expiryTime > now)
+          visitor.visit(this.table.get(base), this.table.get(base + 1), expiryTime);
+      }
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Purges every expired key and calls onExpired for each of them
+   *
+   * @see Runnable#run()
+   */
+  @Override
+  public void run() {
+    long now = this.clock.currentTimeMillis();
+    boolean collect = this.onExpired != null || !this.expiryWaiters.isEmpty();
+    long[] expired = null;
+    int count = 0;
+
+    long stamp = this.lock.writeLock();
+    try {
+      for (int slot = 0; slot <= this.mask; ) {
+        int base = slot * STRIDE;
+        long expiryTime = this.table.get(base + 2);
+        if (expiryTime == EMPTY || expiryTime > now) {
+          slot++;
+          continue;
+        }
+
+        if (collect) {
+          if (expired == null)
+            expired = new long[32];
+          else if (count * 2 == expired.length)
+            expired = Arrays.copyOf(expired, expired.length * 2);
+          expired[count * 2] = this.table.get(base);
+          expired[count * 2 + 1] = this.table.get(base + 1);
+          count++;
+        }
+        // Deleting shifts a later entry back into this slot, so it is inspected again
+        this.delete(slot);
+      }
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+
+    for (int i = 0; i < count; i++) {
+      UUID key = new UUID(expired[i * 2], expired[i * 2 + 1]);
+      if (this.onExpired != null)
+        this.onExpired.onKeyExpired(key);
+      this.expiryWaiters.complete(key);
+    }
+  }
+
+  /**
+   * Gets a future completed with the key once it is out of cooldown, because it expired or got removed
+   *
+   * @param key The key to be awaited
+   * @return Returns a future completed with the key once it is out of cooldown
+   * @see CooldownExpiryWaiters
+   */
+  @Override
+  public CompletableFuture<UUID> awaitExpiry(UUID key) {
+    return this.expiryWaiters.await(key);
+  }
+
+  public long getDefaultExpiryDuration() {
+    return defaultExpiryDuration;
+  }
+
+  @Override
+  public long getRemainingTime(UUID key, TimeUnit timeUnit) {
+    long expiryTime = this.getExpiryTime(key);
+    if (expiryTime == EMPTY) {
+      return 0L;
+    }
+    long currentTime = this.clock.currentTimeMillis();
+    long remainingTime = expiryTime - currentTime;
+    return timeUnit.convert(remainingTime, TimeUnit.MILLISECONDS);
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  // Optimistic lookup, retried under the read lock if a writer changed the table meanwhile
+  private long getExpiryTime(UUID key) {
+    long mostSigBits = key.getMostSignificantBits();
+    long leastSigBits = key.getLeastSignificantBits();
+
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      LongBuffer table = this.table;
+      int mask = table.capacity() / STRIDE - 1;
+      int slot = this.find(table, mask, mostSigBits, leastSigBits);
+      long expiryTime = slot < 0 ? EMPTY : table.get(slot * STRIDE + 2);
+      if (this.lock.validate(stamp))
+        return expiryTime;
+    }
+
+    stamp = this.lock.readLock();
+    try {
+      int slot = this.find(this.table, this.mask, mostSigBits, leastSigBits);
+      return slot < 0 ? EMPTY : this.table.get(slot * STRIDE + 2);
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  private void expire(UUID key, long expiryTime) {
+    long stamp = this.lock.writeLock();
+    try {
+      int slot = this.find(this.table, this.mask, key.getMostSignificantBits(), key.getLeastSignificantBits());
+      if (slot < 0 || this.table.get(slot * STRIDE + 2) != expiryTime)
+        return;
+
+      this.delete(slot);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+
+    if (this.onExpired != null) {
+      this.onExpired.onKeyExpired(key);
+    }
+    this.expiryWaiters.complete(key);
+  }
+
+  // Probes at most one full round so that a racing optimistic read can never spin forever
+  private int find(LongBuffer table, int mask, long mostSigBits, long leastSigBits) {
+    int slot = hash(mostSigBits, leastSigBits) & mask;
+    for (int probes = 0; probes <= mask; probes++) {
+      int base = slot * STRIDE;
+      if (table.get(base + 2) == EMPTY)
+        return -1;
+      if (table.get(base) == mostSigBits && table.get(base + 1) == leastSigBits)
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void put(long mostSigBits, long leastSigBits, long expiryTime) {
+    // A clock starting at zero can produce the empty marker, any earlier time reads as expired just the same
+    if (expiryTime == EMPTY)
+      expiryTime = EMPTY - 1L;
+    int slot = hash(mostSigBits, leastSigBits) & this.mask;
+    while (true) {
+      int base = slot * STRIDE;
+      if (this.table.get(base + 2) == EMPTY) {
+        this.table.put(base, mostSigBits);
+        this.table.put(base + 1, leastSigBits);
+        this.table.put(base + 2, expiryTime);
+        if (++this.size * 4L > (this.mask + 1) * 3L)
+          this.resize();
+        return;
+      }
+      if (this.table.get(base) == mostSigBits && this.table.get(base + 1) == leastSigBits) {
+        this.table.put(base + 2, expiryTime);
+        return;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+  }
+
+  // Backward shift deletion, keeps every probe chain intact without tombstones
+  private void delete(int slot) {
+    int hole = slot;
+    int next = (hole + 1) & this.mask;
+    while (this.table.get(next * STRIDE + 2) != EMPTY) {
+      int home = hash(this.table.get(next * STRIDE), this.table.get(next * STRIDE + 1)) & this.mask;
+      if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+        this.table.put(hole * STRIDE, this.table.get(next * STRIDE));
+        this.table.put(hole * STRIDE + 1, this.table.get(next * STRIDE + 1));
+        this.table.put(hole * STRIDE + 2, this.table.get(next * STRIDE + 2));
+        hole = next;
+      }
+      next = (next + 1) & this.mask;
+    }
+    this.table.put(hole * STRIDE, 0L);
+    this.table.put(hole * STRIDE + 1, 0L);
+    this.table.put(hole * STRIDE + 2, EMPTY);
+    this.size--;
+  }
+
+  private void resize() {
+    LongBuffer old = this.table;
+    int oldCapacity = this.mask + 1;
+    this.allocate(oldCapacity << 1);
+    this.size = 0;
+    for (int slot = 0; slot < oldCapacity; slot++) {
+      int base = slot * STRIDE;
+      long expiryTime = old.get(base + 2);
+      if (expiryTime != EMPTY)
+        this.put(old.get(base), old.get(base + 1), expiryTime);
+    }
+  }
+
+  public interface UUIDVisitor {
+
+    void visit(long mostSigBits, long leastSigBits, long expiryTime);
+
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class UUIDCooldownBuilder {
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+    private CooldownExpiryAction<UUID> expiryAction;
+    private int initialCapacity;
+    private boolean offHeap;
+
+    public UUIDCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the default expiry time of the cooldown provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public UUIDCooldownBuilder withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public UUIDCooldownBuilder withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    public UUIDCooldownBuilder setOnExpiryAction(CooldownExpiryAction<UUID> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public UUIDCooldownBuilder setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    /**
+     * Sizes the table up front for the expected amount of keys, so it does not have to grow while filling up
+     *
+     * @param initialCapacity expected amount of keys
+     * @return The builder
+     */
+    public UUIDCooldownBuilder withInitialCapacity(int initialCapacity) {
+      this.initialCapacity = initialCapacity;
+      return this;
+    }
+
+    /**
+     * Allocates the table in a direct buffer, outside the Java heap
+     *
+     * @param offHeap whether the table should live off-heap
+     * @return The builder
+     */
+    public UUIDCooldownBuilder useOffHeapStorage(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+    }
+
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public UUIDCooldownBuilder withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public UUIDCooldownBuilder withDefaultSettings() {
+      this.expiryAction = null;
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
+      this.defaultExpiryDuration = 1L;
+      this.initialCapacity = MIN_CAPACITY;
+      this.offHeap = false;
+      return this;
+    }
+
+    public long getDefaultExpiryDuration() {
+      return defaultExpiryDuration;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public CooldownExpiryAction<UUID> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public int getInitialCapacity() {
+      return initialCapacity;
+    }
+
+    public boolean isOffHeap() {
+      return offHeap;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public UUIDCooldown build() {
+      return new UUIDCooldown(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, initialCapacity, offHeap, clock);
+    }
+  }
+}
@@ -0,0 +1,398 @@
+package in.arcadelabs.labaide.cooldown;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryAction;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownExpiryWaiters;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownVisitor;
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * A cooldown provider that holds its keys weakly, so a cooldown keyed by a {@link org.bukkit.entity.Player} or an
+ * {@link org.bukkit.entity.Entity} never keeps the object (and through it its world) reachable.
+ * <p>
+ * Once a key has been garbage collected its entry is dropped the next time the provider is used, the collected keys
+ * are taken off a {@link ReferenceQueue} so this never scans the cache. Keys are compared with {@code equals} like in a
+ * {@link java.util.WeakHashMap}, the key must therefore be held somewhere else for as long as its cooldown matters.
+ * Objects that are created on every lookup, such as {@link org.bukkit.block.Block}, make poor keys for this provider.
+ * <p>
+ * Keys are expired lazily when they are checked, like {@link NonTickedCooldown}. Running this provider (for example
+ * on a scheduler) purges every expired key and fires the expiry action for them.
+ */
+public class WeakKeyCooldown<T> implements ICooldown<T>, Runnable {
+
+  private final ConcurrentMap<WeakKey<T>, Long> cache = new ConcurrentHashMap<>();
+  private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+  private final CooldownExpiryAction<T> onExpired;
+  private final CooldownClock clock;
+  private final CooldownExpiryWaiters<T> expiryWaiters;
+  protected long defaultExpiryDuration;
+
+  private WeakKeyCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, CooldownClock clock) {
+    this.defaultExpiryDuration = defaultExpiryDuration;
+    this.onExpired = expiryAction;
+    this.clock = clock;
+    this.expiryWaiters = new CooldownExpiryWaiters<>(this::getExpiryTime, clock);
+  }
+  //--------------------------------------------------------------------------------
+
+  /**
+   * Drops the entries of the keys that have been garbage collected since the last call
+   */
+  private void expungeCollected() {
+    Reference<? extends T> reference;
+    while ((reference = this.collected.poll()) != null) {
+      this.cache.remove(reference);
+    }
+  }
+
+  private void expire(WeakKey<T> reference, T key, long expiryTime) {
+    if (!this.cache.remove(reference, expiryTime))
+      return;
+
+    if (this.onExpired != null)
+      this.onExpired.onKeyExpired(key);
+    this.expiryWaiters.complete(key);
+  }
+
+  private long getExpiryTime(T key) {
+    Long expiryTime = this.cache.get(new WeakKey<>(key));
+    return expiryTime == null ? Long.MIN_VALUE : expiryTime;
+  }
+
+  /**
+   * Clears and shutdown the current cooldown provider
+   * NOTE: This should be strictly called on ScheduledCooldown, since this will handle the thread shutdown properly
+   */
+  @Override
+  public void flush() {
+    this.clear();
+  }
+
+  /**
+   * Clears all the keys in the cooldown check
+   */
+  @Override
+  public void clear() {
+    this.cache.clear();
+    this.expungeCollected();
+    this.expiryWaiters.completeAll();
+  }
+
+  /**
+   * Checks whether a given key is in cooldown. Returns false if the key is absent
+   *
+   * @param key The key to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  @Override
+  public boolean isInCooldown(T key) {
+    this.expungeCollected();
+    WeakKey<T> reference = new WeakKey<>(key);
+    Long value = this.cache.get(reference);
+    if (value == null)
+      return false;
+
+    if (value > this.clock.currentTimeMillis())
+      return true;
+
+    this.expire(reference, key, value);
+    return false;
+  }
+
+  /**
+   * Set the given key to cooldown with the default cooldown timer provided
+   *
+   * @param key The key that has to be set on Cooldown
+   */
+  @Override
+  public void setCooldown(T key) {
+    this.setCooldown(key, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
+    this.expungeCollected();
+    this.cache.put(new WeakKey<>(key, this.collected), this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime));
+  }
+
+  /**
+   * Set all the given keys to cooldown with the default cooldown timer provided
+   *
+   * @param keys The keys that have to be set on Cooldown
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys) {
+    this.setCooldownAll(keys, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    this.expungeCollected();
+    Long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    for (T key : keys) {
+      this.cache.put(new WeakKey<>(key, this.collected), expiryTime);
+    }
+  }
+
+  /**
+   * Remove a key from the cooldown if it exists in the check, else return silently
+   *
+   * @param key The key that has to be removed
+   */
+  @Override
+  public void removeCooldown(T key) {
+    this.expungeCollected();
+    if (this.cache.remove(new WeakKey<>(key)) != null)
+      this.expiryWaiters.complete(key);
+  }
+
+  /**
+   * Remove all the given keys from the cooldown, keys that are absent are skipped silently
+   *
+   * @param keys The keys that have to be removed
+   */
+  @Override
+  public void removeCooldownAll(Collection<? extends T> keys) {
+    this.expungeCollected();
+    for (T key : keys) {
+      if (this.cache.remove(new WeakKey<>(key)) != null)
+        this.expiryWaiters.complete(key);
+    }
+  }
+
+  /**
+   * Remove every key matching the given filter from the cooldown, in a single pass over the cache
+   *
+   * @param filter The filter selecting the keys to be removed
+   */
+  @Override
+  public void removeCooldownIf(Predicate<? super T> filter) {
+    this.expungeCollected();
+    this.cache.keySet().removeIf(reference -> {
+      T key = reference.get();
+      if (key == null || !filter.test(key))
+        return false;
+
+      this.expiryWaiters.complete(key);
+      return true;
+    });
+  }
+
+  /**
+   * Gets a copy of all the cooldown that has been in the registry. The copy holds its keys strongly
+   *
+   * @return Returns a copy of {@link Map<T, Long>} instance of the original cache
+   */
+  @Override
+  public Map<T, Long> getAllCooldown() {
+    Map<T, Long> copy = new ConcurrentHashMap<>(Math.max(this.cache.size(), 1));
+    this.cache.forEach((reference, expiryTime) -> {
+      T key = reference.get();
+      if (key != null)
+        copy.put(key, expiryTime);
+    });
+    return copy;
+  }
+
+  /**
+   * Calls the visitor for every key that is in cooldown and has not been garbage collected
+   *
+   * @param visitor The visitor to be called for each key
+   */
+  @Override
+  public void forEachCooldown(CooldownVisitor<? super T> visitor) {
+    long now = this.clock.currentTimeMillis();
+    this.cache.forEach((reference, expiryTime) -> {
+      T key = reference.get();
+      if (key != null && expiryTime > now)
+        visitor.visit(key, expiryTime);
+    });
+  }
+
+  /**
+   * Gets a future completed with the key once it is out of cooldown, because it expired or got removed. The key is held
+   * strongly until then
+   *
+   * @param key The key to be awaited
+   * @return Returns a future completed with the key once it is out of cooldown
+   * @see CooldownExpiryWaiters
+   */
+  @Override
+  public CompletableFuture<T> awaitExpiry(T key) {
+    return this.expiryWaiters.await(key);
+  }
+
+  @Override
+  public long getRemainingTime(T key, TimeUnit timeUnit) {
+    this.expungeCollected();
+    Long expiryTime = this.cache.get(new WeakKey<>(key));
+    if (expiryTime == null)
+      return 0L;
+
+    return timeUnit.convert(expiryTime - this.clock.currentTimeMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Purges every expired key and calls onExpired for each of them
+   *
+   * @see Runnable#run()
+   */
+  @Override
+  public void run() {
+    this.expungeCollected();
+    long now = this.clock.currentTimeMillis();
+    this.cache.forEach((reference, expiryTime) -> {
+      if (expiryTime > now)
+        return;
+
+      T key = reference.get();
+      if (key == null)
+        this.cache.remove(reference, expiryTime);
+      else
+        this.expire(reference, key, expiryTime);
+    });
+  }
+
+  /**
+   * A weak reference that stands in for its key in the cache. The hash code is taken once up front, so the entry can
+   * still be found and removed after the key has been collected
+   */
+  private static final class WeakKey<K> extends WeakReference<K> {
+
+    private final int hash;
+
+    /**
+     * Creates a lookup key, which is not registered anywhere and is only used for the duration of a single call
+     */
+    private WeakKey(K key) {
+      super(Objects.requireNonNull(key, "key"));
+      this.hash = key.hashCode();
+    }
+
+    private WeakKey(K key, ReferenceQueue<? super K> queue) {
+      super(Objects.requireNonNull(key, "key"), queue);
+      this.hash = key.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof WeakKey<?> other) || this.hash != other.hash)
+        return false;
+
+      Object key = this.get();
+      return key != null && key.equals(other.get());
+    }
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class WeakKeyCooldownBuilder<TKey> {
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+    private CooldownExpiryAction<TKey> expiryAction;
+
+    public WeakKeyCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the default expiry time of the cooldown provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public WeakKeyCooldownBuilder<TKey> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public WeakKeyCooldownBuilder<TKey> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    public WeakKeyCooldownBuilder<TKey> setOnExpiryAction(CooldownExpiryAction<TKey> action) {
+      this.expiryAction = action;
+      return this;
+    }
+
+    public WeakKeyCooldownBuilder<TKey> setNoActionOnExpiry() {
+      this.expiryAction = null;
+      return this;
+    }
+
+    /**
+     * Sets the clock the cooldown provider reads the time from
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public WeakKeyCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public WeakKeyCooldownBuilder<TKey> withDefaultSettings() {
+      this.expiryAction = null;
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = CooldownClock.system();
+      this.defaultExpiryDuration = 1L;
+      return this;
+    }
+
+    public long getDefaultExpiryDuration() {
+      return defaultExpiryDuration;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public CooldownExpiryAction<TKey> getExpiryAction() {
+      return expiryAction;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public WeakKeyCooldown<TKey> build() {
+      return new WeakKeyCooldown<TKey>(this.timeUnit.toMillis(this.defaultExpiryDuration), expiryAction, clock);
+    }
+  }
+}
@@ -1,26 +1,63 @@
 package in.arcadelabs.labaide.cooldown.abstraction;
 
-import java.util.HashMap;
+import in.arcadelabs.labaide.cooldown.metrics.CooldownMetrics;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
+/**
+ * Base of the map backed cooldown providers.
+ * <p>
+ * The cache is a {@link ConcurrentHashMap}, so the checks never take a lock and the providers can be used from the
+ * main thread, async threads and their own ticker at once. Anything that expires a key must do so through
+ * {@link #expire(Object, long)}, which only removes the key if it still holds the same expiry time, so a cooldown
+ * renewed meanwhile is never dropped.
+ * <p>
+ * All the times are read off the {@link CooldownClock} of the provider, the system clock unless configured otherwise.
+ */
 public abstract class AbstractCooldown<T> implements ICooldown<T> {
 
-  protected final HashMap<T, Long> cache;
+  protected final ConcurrentMap<T, Long> cache;
   protected final CooldownExpiryAction<T> onExpired;
+  protected final CooldownMetrics metrics;
+  protected final CooldownClock clock;
+  protected final CooldownExpiryWaiters<T> expiryWaiters;
+  private final Map<T, Long> cacheView;
   protected long defaultExpiryDuration;
 
-  public AbstractCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction) {
-    this.cache = new HashMap<>();
+  /**
+   * @param ticked Whether the provider expires every key on its own, so awaited keys need no timer of their own
+   * @see CooldownExpiryWaiters
+   */
+  protected AbstractCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, CooldownClock clock, boolean ticked) {
+    this.cache = new ConcurrentHashMap<>();
     this.defaultExpiryDuration = defaultExpiryDuration;
     this.onExpired = expiryAction;
+    this.clock = clock;
+    this.expiryWaiters = new CooldownExpiryWaiters<>(this::getExpiryTime, clock, !ticked);
+    this.metrics = new CooldownMetrics(this.cache::size);
+    this.cacheView = Collections.unmodifiableMap(this.cache);
+  }
+
+  public AbstractCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction, CooldownClock clock) {
+    this(defaultExpiryDuration, expiryAction, clock, false);
+  }
+
+  public AbstractCooldown(long defaultExpiryDuration, CooldownExpiryAction<T> expiryAction) {
+    this(defaultExpiryDuration, expiryAction, CooldownClock.system());
   }
 
   public AbstractCooldown(long defaultExpiryDuration) {
-    this.defaultExpiryDuration = defaultExpiryDuration;
-    this.cache = new HashMap<>();
-    this.onExpired = null;
+    this(defaultExpiryDuration, null, CooldownClock.system());
   }
 
   /**
@@ -35,6 +72,43 @@ public abstract class AbstractCooldown<T> implements ICooldown<T> {
     }
   }
 
+  /**
+   * Removes the key only if it is still mapped to the given expiry time and calls onExpired when it was
+   *
+   * @param key        The key to be expired
+   * @param expiryTime The expiry time the caller observed for the key
+   * @return Returns true if this call expired the key, false if it was removed or renewed meanwhile
+   */
+  protected boolean expire(T key, long expiryTime) {
+    if (!this.cache.remove(key, expiryTime))
+      return false;
+
+    this.notifyExpired(key, expiryTime);
+    return true;
+  }
+
+  /**
+   * Records the expiry and calls onExpired for a key the caller already removed from the cache itself, e.g. under a
+   * lock of its own that the expiry action must not run under
+   *
+   * @param key        The key that was expired
+   * @param expiryTime The expiry time the key was removed with
+   */
+  protected void notifyExpired(T key, long expiryTime) {
+    this.metrics.recordExpiry(this.clock.currentTimeMillis() - expiryTime);
+    try {
+      this.setExpired(key);
+    } finally {
+      // Ticked providers arm no timer, a throwing expiry action must not leave the future of the key pending
+      this.expiryWaiters.complete(key);
+    }
+  }
+
+  private long getExpiryTime(T key) {
+    Long expiryTime = this.cache.get(key);
+    return expiryTime == null ? Long.MIN_VALUE : expiryTime;
+  }
+
   protected boolean isEmpty() {
     return this.cache.isEmpty();
   }
@@ -49,16 +123,42 @@ public abstract class AbstractCooldown<T> implements ICooldown<T> {
     return new ConcurrentHashMap<>(this.cache);
   }
 
+  /**
+   * Gets a read-only view of the cache itself. Like the cache it is weakly consistent, it reflects changes made while
+   * iterating it or not and never throws a {@link java.util.ConcurrentModificationException}
+   *
+   * @return Returns a read-only {@link Map<T, Long>} view of the original cache
+   */
+  @Override
+  public Map<T, Long> getCooldownView() {
+    return this.cacheView;
+  }
+
+  /**
+   * Calls the visitor for every key that is in cooldown, straight off the cache without any copy or allocation per key
+   *
+   * @param visitor The visitor to be called for each key
+   */
+  @Override
+  public void forEachCooldown(CooldownVisitor<? super T> visitor) {
+    long now = this.clock.currentTimeMillis();
+    this.cache.forEach((key, expiryTime) -> {
+      if (expiryTime > now)
+        visitor.visit(key, expiryTime);
+    });
+  }
+
   /**
    * Clears all the keys in the cooldown check
    */
   @Override
   public void clear() {
     this.cache.clear();
+    this.expiryWaiters.completeAll();
   }
 
   protected boolean isInCooldownInternal(long value) {
-    return value > System.currentTimeMillis();
+    return value > this.clock.currentTimeMillis();
   }
 
   /**
@@ -69,12 +169,56 @@ public abstract class AbstractCooldown<T> implements ICooldown<T> {
    */
   @Override
   public boolean isInCooldown(T key) {
-    if (!this.cache.containsKey(key))
-      return false;
+    Long value = this.cache.get(key);
+    boolean inCooldown = value != null && isInCooldownInternal(value);
+    this.metrics.recordCheck(inCooldown);
+    return inCooldown;
+  }
 
+  /**
+   * Checks the key like {@link #isInCooldown(Object)} and expires it right away if it is due, for the providers that
+   * expire keys lazily when they are checked instead of on a ticker
+   *
+   * @param key The key to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  protected boolean checkLazily(T key) {
     Long value = this.cache.get(key);
+    if (value == null) {
+      this.metrics.recordCheck(false);
+      return false;
+    }
+
+    if (isInCooldownInternal(value)) {
+      this.metrics.recordCheck(true);
+      return true;
+    }
 
-    return isInCooldownInternal(value);
+    this.metrics.recordCheck(false);
+    this.expire(key, value);
+    return false;
+  }
+
+  /**
+   * Checks a whole batch of keys at once, against a single reading of the clock
+   *
+   * @param keys   The keys to be checked
+   * @param result The set to be filled, bit {@code i} is set if {@code keys.get(i)} is in cooldown and cleared otherwise
+   * @return Returns the given result set
+   */
+  @Override
+  public BitSet isInCooldown(List<? extends T> keys, BitSet result) {
+    long now = this.clock.currentTimeMillis();
+    int hits = 0;
+    for (int i = 0; i < keys.size(); i++) {
+      Long value = this.cache.get(keys.get(i));
+      boolean inCooldown = value != null && value > now;
+      result.set(i, inCooldown);
+      if (inCooldown)
+        hits++;
+    }
+    this.metrics.recordChecks(keys.size(), hits);
+    return result;
   }
 
   /**
@@ -97,7 +241,36 @@ public abstract class AbstractCooldown<T> implements ICooldown<T> {
    */
   @Override
   public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
-    this.cache.put(key, customTimeUnit.toMillis(customTime));
+    this.cache.put(key, this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime));
+    this.metrics.recordSet();
+  }
+
+  /**
+   * Set all the given keys to cooldown with the default cooldown timer provided
+   *
+   * @param keys The keys that have to be set on Cooldown
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys) {
+    this.setCooldownAll(keys, defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    Long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    int sets = 0;
+    for (T key : keys) {
+      this.cache.put(key, expiryTime);
+      sets++;
+    }
+    this.metrics.recordSets(sets);
   }
 
   /**
@@ -107,19 +280,88 @@ public abstract class AbstractCooldown<T> implements ICooldown<T> {
    */
   @Override
   public void removeCooldown(T key) {
-    this.cache.remove(key);
+    if (this.cache.remove(key) == null)
+      return;
+
+    this.metrics.recordRemoval();
+    this.expiryWaiters.complete(key);
+  }
+
+  /**
+   * Remove all the given keys from the cooldown, keys that are absent are skipped silently
+   *
+   * @param keys The keys that have to be removed
+   */
+  @Override
+  public void removeCooldownAll(Collection<? extends T> keys) {
+    int removals = 0;
+    for (T key : keys) {
+      if (this.cache.remove(key) == null)
+        continue;
+
+      removals++;
+      this.expiryWaiters.complete(key);
+    }
+    this.metrics.recordRemovals(removals);
+  }
+
+  /**
+   * Remove every key matching the given filter from the cooldown, in a single pass over the cache
+   *
+   * @param filter The filter selecting the keys to be removed
+   */
+  @Override
+  public void removeCooldownIf(Predicate<? super T> filter) {
+    int removals = 0;
+    Iterator<T> iterator = this.cache.keySet().iterator();
+    while (iterator.hasNext()) {
+      T key = iterator.next();
+      if (!filter.test(key))
+        continue;
+
+      iterator.remove();
+      removals++;
+      this.expiryWaiters.complete(key);
+    }
+    this.metrics.recordRemovals(removals);
+  }
+
+  /**
+   * Gets a future completed with the key once it is out of cooldown, because it expired or got removed
+   *
+   * @param key The key to be awaited
+   * @return Returns a future completed with the key once it is out of cooldown
+   * @see CooldownExpiryWaiters
+   */
+  @Override
+  public CompletableFuture<T> awaitExpiry(T key) {
+    return this.expiryWaiters.await(key);
+  }
+
+  /**
+   * Gets the runtime counters of this provider, call {@link CooldownMetrics#snapshot()} to read them
+   *
+   * @return Returns the {@link CooldownMetrics} of this provider
+   */
+  public CooldownMetrics getMetrics() {
+    return metrics;
+  }
+
+  public CooldownClock getClock() {
+    return clock;
   }
 
   public long getDefaultExpiryDuration() {
     return defaultExpiryDuration;
   }
 
+  @Override
   public long getRemainingTime(T key, TimeUnit timeUnit) {
-    if (!this.cache.containsKey(key)) {
+    Long expiryTime = this.cache.get(key);
+    if (expiryTime == null) {
       return 0L;
     }
-    long expiryTime = this.cache.get(key);
-    long currentTime = System.currentTimeMillis();
+    long currentTime = this.clock.currentTimeMillis();
     long remainingTime = expiryTime - currentTime;
     return timeUnit.convert(remainingTime, TimeUnit.MILLISECONDS);
   }
@@ -0,0 +1,12 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+public interface CooldownBatchExpiryAction<T> {
+
+  /**
+   * Called once with every key that expired during a tick
+   *
+   * @param keys The expired keys, only valid until this method returns
+   */
+  void onKeysExpired(CooldownExpiryBuffer<T> keys);
+
+}
@@ -0,0 +1,28 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+import in.arcadelabs.labaide.cooldown.clock.SystemCooldownClock;
+
+/**
+ * The time source of a cooldown provider. Expiry times are stored and compared in the milliseconds of its clock, so
+ * all the keys of a provider must be set and checked against one and the same clock.
+ */
+@FunctionalInterface
+public interface CooldownClock {
+
+  /**
+   * Gets the current time of this clock
+   *
+   * @return Returns the current time in milliseconds
+   */
+  long currentTimeMillis();
+
+  /**
+   * Gets the clock reading {@link System#currentTimeMillis()}, the default of every cooldown provider
+   *
+   * @return Returns the system clock
+   */
+  static CooldownClock system() {
+    return SystemCooldownClock.INSTANCE;
+  }
+
+}
@@ -0,0 +1,54 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reusable buffer of the keys that expired during a tick, handed to a {@link CooldownBatchExpiryAction}.
+ * <p>
+ * The buffer is cleared and refilled for a later batch once the action returns, so it must not be kept around. Copy
+ * the keys out of it if they are needed afterwards.
+ *
+ * @param <T> Type of the keys
+ */
+public final class CooldownExpiryBuffer<T> {
+
+  private Object[] keys;
+  private int size;
+
+  public CooldownExpiryBuffer() {
+    this.keys = new Object[16];
+  }
+
+  public void add(T key) {
+    if (this.size == this.keys.length)
+      this.keys = Arrays.copyOf(this.keys, this.size << 1);
+    this.keys[this.size++] = key;
+  }
+
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    if (index >= this.size)
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + this.size);
+    return (T) this.keys[index];
+  }
+
+  public void forEach(Consumer<? super T> action) {
+    for (int i = 0; i < this.size; i++) {
+      action.accept(this.get(i));
+    }
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(this.keys, 0, this.size, null);
+    this.size = 0;
+  }
+}
@@ -0,0 +1,116 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * The futures handed out by {@link ICooldown#awaitExpiry(Object)}, one per awaited key.
+ * <p>
+ * The provider completes the future of a key as soon as it expires, gets removed or the provider is cleared. Since
+ * providers that expire keys lazily would never get to do so while nobody checks, their waiters also arm a single
+ * timer per future for the expiry time of its key, which completes it if the key is out of cooldown by then and
+ * re-arms itself if the key got renewed meanwhile. Ticked providers expire every key on their own and arm no timer,
+ * which relies on them expiring every due key even if an expiry action throws, and completing its future regardless.
+ * <p>
+ * The timer counts real milliseconds. With a clock that does not follow the system time, e.g. a manual one, it only
+ * re-checks the key each time the remaining time is over, so the future completes at the first re-check after the
+ * clock moved past the expiry time, or earlier if the key is checked meanwhile.
+ * <p>
+ * The futures are completed on the thread that expired or removed the key, or on a timer thread of the common pool,
+ * dependent actions run there as well unless they are attached asynchronously.
+ *
+ * @param <T> Type of the keys
+ */
+public final class CooldownExpiryWaiters<T> {
+
+  private final ConcurrentMap<T, CompletableFuture<T>> waiters = new ConcurrentHashMap<>();
+  private final ToLongFunction<T> expiryTimeLookup;
+  private final CooldownClock clock;
+  private final boolean armTimers;
+
+  /**
+   * @param expiryTimeLookup Gets the expiry time of a key, or any time in the past if the key is absent
+   * @param clock            The clock of the provider
+   * @param armTimers        Whether to arm a timer per future, false for ticked providers that expire keys on their own
+   */
+  public CooldownExpiryWaiters(ToLongFunction<T> expiryTimeLookup, CooldownClock clock, boolean armTimers) {
+    this.expiryTimeLookup = expiryTimeLookup;
+    this.clock = clock;
+    this.armTimers = armTimers;
+  }
+
+  /**
+   * Creates the waiters of a provider that expires keys lazily, arming a timer per future
+   *
+   * @param expiryTimeLookup Gets the expiry time of a key, or any time in the past if the key is absent
+   * @param clock            The clock of the provider
+   */
+  public CooldownExpiryWaiters(ToLongFunction<T> expiryTimeLookup, CooldownClock clock) {
+    this(expiryTimeLookup, clock, true);
+  }
+
+  /**
+   * Gets a future completed once the given key is out of cooldown, already completed if it is not in cooldown now
+   *
+   * @param key The key to be awaited
+   * @return Returns a future completed with the key
+   */
+  public CompletableFuture<T> await(T key) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    CompletableFuture<T> existing = this.waiters.putIfAbsent(key, future);
+    if (existing != null)
+      return existing.copy();
+
+    // Registered before checking, an expiry racing this call either sees the future or is seen by the check
+    this.check(key, future);
+    return future.copy();
+  }
+
+  private void check(T key, CompletableFuture<T> future) {
+    if (future.isDone())
+      return;
+
+    long expiryTime = this.expiryTimeLookup.applyAsLong(key);
+    long now = this.clock.currentTimeMillis();
+    if (expiryTime <= now) {
+      if (this.waiters.remove(key, future))
+        future.complete(key);
+      return;
+    }
+    if (this.armTimers)
+      CompletableFuture.delayedExecutor(expiryTime - now, TimeUnit.MILLISECONDS).execute(() -> this.check(key, future));
+  }
+
+  /**
+   * Completes the future of the given key, if it is awaited
+   *
+   * @param key The key that is out of cooldown
+   */
+  public void complete(T key) {
+    if (this.waiters.isEmpty())
+      return;
+
+    CompletableFuture<T> future = this.waiters.remove(key);
+    if (future != null)
+      future.complete(key);
+  }
+
+  /**
+   * Completes the futures of every awaited key
+   */
+  public void completeAll() {
+    if (this.waiters.isEmpty())
+      return;
+
+    for (T key : this.waiters.keySet()) {
+      this.complete(key);
+    }
+  }
+
+  public boolean isEmpty() {
+    return this.waiters.isEmpty();
+  }
+}
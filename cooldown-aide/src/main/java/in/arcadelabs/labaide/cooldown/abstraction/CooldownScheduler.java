@@ -0,0 +1,28 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+import java.util.concurrent.TimeUnit;
+
+public interface CooldownScheduler {
+
+  /**
+   * Runs the given task repeatedly at the given interval, until it gets cancelled or the scheduler shuts down
+   *
+   * @param task     The task to be run
+   * @param interval How often the task should run
+   * @param timeUnit {@link TimeUnit} of the interval
+   * @return Returns the handle to cancel the task with
+   */
+  Task scheduleAtFixedRate(Runnable task, long interval, TimeUnit timeUnit);
+
+  /**
+   * Cancels every task and releases the threads of the scheduler
+   */
+  void shutdown();
+
+  interface Task {
+
+    void cancel();
+
+  }
+
+}
@@ -0,0 +1,13 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+public interface CooldownVisitor<T> {
+
+  /**
+   * Called for every key in cooldown
+   *
+   * @param key        The key in cooldown
+   * @param expiryTime When the cooldown of the key expires, in epoch milliseconds
+   */
+  void visit(T key, long expiryTime);
+
+}
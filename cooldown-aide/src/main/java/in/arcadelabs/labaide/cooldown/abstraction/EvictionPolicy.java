@@ -0,0 +1,15 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+public enum EvictionPolicy {
+
+  /**
+   * Once full, the key whose cooldown expires the soonest is evicted to make room for the new one
+   */
+  SOONEST_EXPIRY,
+
+  /**
+   * Once full, new keys are not put in cooldown until some room is freed, the keys already in cooldown are kept
+   */
+  REJECT_NEW
+
+}
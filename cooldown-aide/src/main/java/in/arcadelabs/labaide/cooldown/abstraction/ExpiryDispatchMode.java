@@ -0,0 +1,15 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+public enum ExpiryDispatchMode {
+
+  /**
+   * The expiry action is called for every key on the thread that ticks the cooldown, as soon as it expires
+   */
+  IMMEDIATE,
+
+  /**
+   * The keys expired during a tick are collected and handed over in one batch, on the configured executor
+   */
+  BATCHED
+
+}
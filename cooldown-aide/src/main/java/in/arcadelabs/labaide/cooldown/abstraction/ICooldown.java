@@ -1,7 +1,15 @@
 package in.arcadelabs.labaide.cooldown.abstraction;
 
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public interface ICooldown<T> {
 
@@ -36,6 +44,67 @@ public interface ICooldown<T> {
    */
   void removeCooldown(T key);
 
+  /**
+   * Checks a whole batch of keys at once
+   *
+   * @param keys   The keys to be checked
+   * @param result The set to be filled, bit {@code i} is set if {@code keys.get(i)} is in cooldown and cleared otherwise
+   * @return Returns the given result set
+   */
+  default BitSet isInCooldown(List<? extends T> keys, BitSet result) {
+    for (int i = 0; i < keys.size(); i++) {
+      result.set(i, this.isInCooldown(keys.get(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Set all the given keys to cooldown with the default cooldown timer provided
+   *
+   * @param keys The keys that have to be set on Cooldown
+   */
+  default void setCooldownAll(Iterable<? extends T> keys) {
+    for (T key : keys) {
+      this.setCooldown(key);
+    }
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  default void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    for (T key : keys) {
+      this.setCooldown(key, customTime, customTimeUnit);
+    }
+  }
+
+  /**
+   * Remove all the given keys from the cooldown, keys that are absent are skipped silently
+   *
+   * @param keys The keys that have to be removed
+   */
+  default void removeCooldownAll(Collection<? extends T> keys) {
+    for (T key : keys) {
+      this.removeCooldown(key);
+    }
+  }
+
+  /**
+   * Remove every key matching the given filter from the cooldown
+   *
+   * @param filter The filter selecting the keys to be removed
+   */
+  default void removeCooldownIf(Predicate<? super T> filter) {
+    for (T key : this.getAllCooldown().keySet()) {
+      if (filter.test(key))
+        this.removeCooldown(key);
+    }
+  }
+
   /**
    * Gets a copy of all the cooldown that has been in the registry
    *
@@ -43,6 +112,92 @@ public interface ICooldown<T> {
    */
   Map<T, Long> getAllCooldown();
 
+  /**
+   * Gets a read-only view of the cooldowns. Providers backed by a map return a view of it without copying, which is
+   * weakly consistent, it reflects changes made while iterating it or not and never throws a
+   * {@link java.util.ConcurrentModificationException}. The default wraps {@link #getAllCooldown()}, so it is a copy
+   *
+   * @return Returns a read-only {@link Map<T, Long>} view of the keys and their expiry times
+   */
+  default Map<T, Long> getCooldownView() {
+    return Collections.unmodifiableMap(this.getAllCooldown());
+  }
+
+  /**
+   * Calls the visitor for every key that is in cooldown. Providers walk their own storage without copying the cooldowns
+   * or boxing the expiry times, and it is safe to call while the cooldowns are being changed, changes made meanwhile
+   * may or may not be visited. The default walks a copy from {@link #getAllCooldown()} instead and compares the expiry
+   * times against the system clock
+   *
+   * @param visitor The visitor to be called for each key
+   */
+  default void forEachCooldown(CooldownVisitor<? super T> visitor) {
+    long now = System.currentTimeMillis();
+    this.getAllCooldown().forEach((key, expiryTime) -> {
+      if (expiryTime > now)
+        visitor.visit(key, expiryTime);
+    });
+  }
+
+  /**
+   * Gets how long the given key is still in cooldown, 0 or less if it is not in cooldown. The default looks the key up
+   * in a copy from {@link #getAllCooldown()} and compares its expiry time against the system clock, providers override
+   * it to read their own storage and clock
+   *
+   * @param key      The key to be checked
+   * @param timeUnit {@link TimeUnit} of the returned time
+   * @return Returns the time left until the key is out of cooldown
+   */
+  default long getRemainingTime(T key, TimeUnit timeUnit) {
+    Long expiryTime = this.getAllCooldown().get(key);
+    if (expiryTime == null)
+      return 0L;
+
+    return timeUnit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets a future completed with the key once it is out of cooldown, because it expired or got removed. Renewing the
+   * cooldown of the key meanwhile postpones the completion, a key that is not in cooldown completes it right away.
+   * <p>
+   * The future is completed on the thread that expired or removed the key. Providers that expire keys lazily complete
+   * it on a timer thread of the common pool if nobody checks the key by then. Use
+   * {@link #awaitExpiry(Object, Executor)} to get notified elsewhere, e.g. on the main thread.
+   * <p>
+   * The default checks {@link #getRemainingTime(Object, TimeUnit)} again each time the remaining time is over, so it
+   * completes the future on a timer thread, up to the remaining time late if the key got removed meanwhile
+   *
+   * @param key The key to be awaited
+   * @return Returns a future completed with the key once it is out of cooldown
+   */
+  default CompletableFuture<T> awaitExpiry(T key) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    this.pollExpiry(key, future);
+    return future;
+  }
+
+  /**
+   * Gets a future completed with the key on the given executor, once it is out of cooldown
+   *
+   * @param key      The key to be awaited
+   * @param executor The executor the future is completed on
+   * @return Returns a future completed with the key once it is out of cooldown
+   * @see #awaitExpiry(Object)
+   */
+  default CompletableFuture<T> awaitExpiry(T key, Executor executor) {
+    return this.awaitExpiry(key).thenApplyAsync(Function.identity(), executor);
+  }
+
+  // Completes the future once the key is out of cooldown, checking again when the remaining time is over
+  private void pollExpiry(T key, CompletableFuture<T> future) {
+    long remaining = this.getRemainingTime(key, TimeUnit.MILLISECONDS);
+    if (remaining <= 0L) {
+      future.complete(key);
+      return;
+    }
+    CompletableFuture.delayedExecutor(remaining, TimeUnit.MILLISECONDS).execute(() -> this.pollExpiry(key, future));
+  }
+
   /**
    * Clears all the keys in the cooldown check
    */
@@ -0,0 +1,53 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+import java.util.concurrent.TimeUnit;
+
+public interface IEventCounter<T> {
+
+  /**
+   * Counts a single event of the given key
+   *
+   * @param key The key that did the event
+   * @return Returns how many events the key did within the window, this one included
+   */
+  long record(T key);
+
+  /**
+   * Counts the given amount of events of the given key at once
+   *
+   * @param key    The key that did the events
+   * @param events How many events to count
+   * @return Returns how many events the key did within the window, these included
+   */
+  long record(T key, int events);
+
+  /**
+   * @param key The key to be checked
+   * @return Returns how many events the key did within the window, 0 if the key is absent
+   */
+  long count(T key);
+
+  /**
+   * @param timeUnit {@link TimeUnit} of the returned time
+   * @return Returns how far back the events are counted
+   */
+  long getWindow(TimeUnit timeUnit);
+
+  /**
+   * Forgets every event of the key, if it exists in the counter, else return silently
+   *
+   * @param key The key that has to be reset
+   */
+  void reset(T key);
+
+  /**
+   * Forgets the events of all the keys in the counter
+   */
+  void clear();
+
+  /**
+   * Clears and shutdown the current counter
+   */
+  void flush();
+
+}
@@ -0,0 +1,54 @@
+package in.arcadelabs.labaide.cooldown.abstraction;
+
+import java.util.concurrent.TimeUnit;
+
+public interface IRateLimiter<T> {
+
+  /**
+   * Takes a single permit of the given key if one is available
+   *
+   * @param key The key to be charged
+   * @return Returns true if the permit was taken, false if the key is rate limited
+   */
+  boolean tryAcquire(T key);
+
+  /**
+   * Takes the given amount of permits of the given key if they are all available, else takes none
+   *
+   * @param key     The key to be charged
+   * @param permits How many permits to take
+   * @return Returns true if the permits were taken, false if the key is rate limited
+   */
+  boolean tryAcquire(T key, int permits);
+
+  /**
+   * @param key The key to be checked
+   * @return Returns how many permits the key could take right now
+   */
+  long getAvailablePermits(T key);
+
+  /**
+   * @param key      The key to be checked
+   * @param timeUnit {@link TimeUnit} of the returned time
+   * @return Returns how long the key has to wait for its next permit, 0 if one is available
+   */
+  long getWaitTime(T key, TimeUnit timeUnit);
+
+  /**
+   * Refills the key completely, if it exists in the limiter, else return silently
+   *
+   * @param key The key that has to be reset
+   */
+  void reset(T key);
+
+  /**
+   * Refills all the keys in the limiter
+   */
+  void clear();
+
+  /**
+   * Clears and shutdown the current rate limiter
+   */
+  void flush();
+
+}
@@ -0,0 +1,56 @@
+package in.arcadelabs.labaide.cooldown.clock;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that only moves when told to, for tests and benchmarks that need cooldowns to expire deterministically.
+ * <p>
+ * Providers that expire keys on a thread of their own only notice the clock moved the next time they tick, and keys
+ * persisted by {@link in.arcadelabs.labaide.cooldown.persistence.PersistentCooldown} keep their manual expiry times.
+ */
+public final class ManualCooldownClock implements CooldownClock {
+
+  private final AtomicLong currentTimeMillis;
+
+  /**
+   * @param startTimeMillis The time the clock starts at
+   */
+  public ManualCooldownClock(long startTimeMillis) {
+    this.currentTimeMillis = new AtomicLong(startTimeMillis);
+  }
+
+  public ManualCooldownClock() {
+    this(0L);
+  }
+
+  /**
+   * Moves the clock forward by the given amount of time
+   *
+   * @param time     How far the clock should move
+   * @param timeUnit {@link TimeUnit} of the time
+   * @return Returns the new time of the clock in milliseconds
+   */
+  public long advance(long time, TimeUnit timeUnit) {
+    if (time < 0L)
+      throw new IllegalArgumentException("A clock cannot move backwards");
+
+    return this.currentTimeMillis.addAndGet(timeUnit.toMillis(time));
+  }
+
+  /**
+   * Sets the clock to the given time
+   *
+   * @param timeMillis The new time of the clock in milliseconds
+   */
+  public void setTime(long timeMillis) {
+    this.currentTimeMillis.set(timeMillis);
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return this.currentTimeMillis.get();
+  }
+}
@@ -0,0 +1,26 @@
+package in.arcadelabs.labaide.cooldown.clock;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+
+/**
+ * Counts the time elapsed since its creation with {@link System#nanoTime()}, so adjustments of the system time (NTP,
+ * an operator changing the date) never shorten or stretch a cooldown.
+ * <p>
+ * The readings start at the wall clock time of the creation of the clock and are epoch milliseconds from then on, but
+ * drift apart from the wall clock whenever the system time gets adjusted.
+ */
+public final class MonotonicCooldownClock implements CooldownClock {
+
+  private final long originMillis;
+  private final long originNanos;
+
+  public MonotonicCooldownClock() {
+    this.originMillis = System.currentTimeMillis();
+    this.originNanos = System.nanoTime();
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return this.originMillis + (System.nanoTime() - this.originNanos) / 1_000_000L;
+  }
+}
@@ -0,0 +1,20 @@
+package in.arcadelabs.labaide.cooldown.clock;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+
+/**
+ * Reads {@link System#currentTimeMillis()} on every call. Follows the wall clock, adjustments of the system time
+ * included.
+ */
+public final class SystemCooldownClock implements CooldownClock {
+
+  public static final SystemCooldownClock INSTANCE = new SystemCooldownClock();
+
+  private SystemCooldownClock() {
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+}
@@ -0,0 +1,61 @@
+package in.arcadelabs.labaide.cooldown.clock;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads another clock once per tick and hands out that reading until the next tick, so checks on the hot path are a
+ * plain volatile read. The readings lag behind the source clock by up to one tick.
+ * <p>
+ * The clock is ticked by running it, typically once per server tick from the main thread:
+ * <pre>{@code
+ * TickCachedCooldownClock clock = new TickCachedCooldownClock();
+ * clock.start(new BukkitCooldownScheduler(plugin, false));
+ * }</pre>
+ */
+public final class TickCachedCooldownClock implements CooldownClock, Runnable {
+
+  private static final long MILLIS_PER_TICK = 50L;
+
+  private final CooldownClock source;
+  private volatile long currentTimeMillis;
+
+  /**
+   * @param source The clock to be read once per tick
+   */
+  public TickCachedCooldownClock(CooldownClock source) {
+    this.source = source;
+    this.currentTimeMillis = source.currentTimeMillis();
+  }
+
+  public TickCachedCooldownClock() {
+    this(CooldownClock.system());
+  }
+
+  /**
+   * Ticks this clock on the given scheduler once per server tick
+   *
+   * @param scheduler The scheduler to tick the clock on
+   * @return Returns the handle to stop the ticking with
+   */
+  public CooldownScheduler.Task start(CooldownScheduler scheduler) {
+    return scheduler.scheduleAtFixedRate(this, MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Takes a new reading of the source clock
+   *
+   * @see Runnable#run()
+   */
+  @Override
+  public void run() {
+    this.currentTimeMillis = this.source.currentTimeMillis();
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return this.currentTimeMillis;
+  }
+}
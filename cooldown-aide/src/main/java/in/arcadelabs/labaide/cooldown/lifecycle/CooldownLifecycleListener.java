@@ -0,0 +1,121 @@
+package in.arcadelabs.labaide.cooldown.lifecycle;
+
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Removes the cooldowns of players and entities as soon as they leave the server, so the cooldown providers never hold
+ * on to them (or to their worlds) until the cooldowns run out.
+ * <p>
+ * Every tracked cooldown gets a single removal per event, looked up by the key the entity maps to, the caches are never
+ * scanned. Players are released when they quit, any other entity when it is removed from its world, which also happens
+ * when its chunk or its world unloads.
+ */
+public class CooldownLifecycleListener implements Listener {
+
+  private final List<Tracked<?>> tracked = new CopyOnWriteArrayList<>();
+
+  /**
+   * Tracks a cooldown keyed by something derived from the entity
+   *
+   * @param cooldown  The cooldown to be tracked
+   * @param keyMapper Maps an entity to its key in the cooldown, or to null if the cooldown has no key for it
+   * @return This listener
+   */
+  public <K> CooldownLifecycleListener track(ICooldown<K> cooldown, Function<? super Entity, ? extends K> keyMapper) {
+    this.tracked.add(new Tracked<>(cooldown, keyMapper));
+    return this;
+  }
+
+  /**
+   * Tracks a cooldown keyed by the entity or player objects themselves
+   *
+   * @param cooldown The cooldown to be tracked
+   * @return This listener
+   */
+  @SuppressWarnings("unchecked")
+  public CooldownLifecycleListener trackEntities(ICooldown<? extends Entity> cooldown) {
+    // Removing an entity of another type from e.g. an ICooldown<Player> is a plain miss, never a failure
+    return this.track((ICooldown<Entity>) cooldown, Function.identity());
+  }
+
+  /**
+   * Tracks a cooldown keyed by the unique ids of the entities or players.
+   * <p>
+   * The cooldown of a player is dropped when they quit, so a player can reset it by relogging. Only track cooldowns
+   * that are fine to lose that way, e.g. chat or command spam guards, and track ability cooldowns with a
+   * {@link in.arcadelabs.labaide.cooldown.persistence.PlayerDataCooldownStore} instead, which keeps them across relogs
+   *
+   * @param cooldown The cooldown to be tracked
+   * @return This listener
+   */
+  public CooldownLifecycleListener trackUniqueIds(ICooldown<UUID> cooldown) {
+    return this.track(cooldown, Entity::getUniqueId);
+  }
+
+  /**
+   * Stops tracking the given cooldown, its keys are left as they are
+   *
+   * @param cooldown The cooldown to be untracked
+   */
+  public void untrack(ICooldown<?> cooldown) {
+    this.tracked.removeIf(tracked -> tracked.cooldown() == cooldown);
+  }
+
+  /**
+   * Registers this listener to the given plugin
+   *
+   * @param plugin The plugin owning the cooldowns
+   * @return This listener
+   */
+  public CooldownLifecycleListener register(Plugin plugin) {
+    plugin.getServer().getPluginManager().registerEvents(this, plugin);
+    return this;
+  }
+
+  /**
+   * Removes the cooldowns of the given entity from every tracked cooldown
+   *
+   * @param entity The entity to be released
+   */
+  public void release(Entity entity) {
+    for (Tracked<?> tracked : this.tracked) {
+      tracked.release(entity);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerQuit(PlayerQuitEvent event) {
+    this.release(event.getPlayer());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+    // Players are removed from their world when they change worlds as well, they are released on quit instead
+    if (event.getEntity() instanceof Player)
+      return;
+
+    this.release(event.getEntity());
+  }
+
+  private record Tracked<K>(ICooldown<K> cooldown, Function<? super Entity, ? extends K> keyMapper) {
+
+    void release(Entity entity) {
+      K key = this.keyMapper.apply(entity);
+      if (key != null)
+        this.cooldown.removeCooldown(key);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package in.arcadelabs.labaide.cooldown.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Runtime counters of a cooldown provider, built on striped {@link LongAdder}s so that recording stays cheap under
+ * contention.
+ * <p>
+ * Sweep durations are recorded in nanoseconds, expiry lag (how late a key got expired after its expiry time) in
+ * milliseconds.
+ */
+public final class CooldownMetrics {
+
+  private final LongSupplier liveKeys;
+  private final LongAdder checks = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder sets = new LongAdder();
+  private final LongAdder removals = new LongAdder();
+  private final LongAdder expiries = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LatencyHistogram sweepDuration = new LatencyHistogram();
+  private final LatencyHistogram expiryLag = new LatencyHistogram();
+
+  /**
+   * @param liveKeys Supplies the amount of keys currently held by the provider
+   */
+  public CooldownMetrics(LongSupplier liveKeys) {
+    this.liveKeys = liveKeys;
+  }
+
+  public void recordCheck(boolean hit) {
+    this.checks.increment();
+    if (hit)
+      this.hits.increment();
+  }
+
+  public void recordChecks(long checks, long hits) {
+    this.checks.add(checks);
+    this.hits.add(hits);
+  }
+
+  public void recordSet() {
+    this.sets.increment();
+  }
+
+  public void recordSets(long sets) {
+    this.sets.add(sets);
+  }
+
+  public void recordRemoval() {
+    this.removals.increment();
+  }
+
+  public void recordRemovals(long removals) {
+    this.removals.add(removals);
+  }
+
+  public void recordExpiry(long lagMillis) {
+    this.expiries.increment();
+    this.expiryLag.record(lagMillis);
+  }
+
+  public void recordEviction() {
+    this.evictions.increment();
+  }
+
+  public void recordEvictions(long evictions) {
+    this.evictions.add(evictions);
+  }
+
+  public void recordRejection() {
+    this.rejections.increment();
+  }
+
+  public void recordSweep(long durationNanos) {
+    this.sweepDuration.record(durationNanos);
+  }
+
+  /**
+   * Resets every counter, the live key count is left untouched
+   */
+  public void reset() {
+    this.checks.reset();
+    this.hits.reset();
+    this.sets.reset();
+    this.removals.reset();
+    this.expiries.reset();
+    this.evictions.reset();
+    this.rejections.reset();
+    this.sweepDuration.reset();
+    this.expiryLag.reset();
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(this.liveKeys.getAsLong(), this.checks.sum(), this.hits.sum(), this.sets.sum(),
+        this.removals.sum(), this.expiries.sum(), this.evictions.sum(), this.rejections.sum(), this.sweepDuration.snapshot(), this.expiryLag.snapshot());
+  }
+
+  /**
+   * Point in time copy of the {@link CooldownMetrics} of a provider
+   */
+  public record Snapshot(long liveKeys, long checks, long hits, long sets, long removals, long expiries,
+                         long evictions, long rejections, LatencyHistogram.Snapshot sweepDurationNanos, LatencyHistogram.Snapshot expiryLagMillis) {
+
+    public double hitRatio() {
+      return this.checks == 0L ? 0D : (double) this.hits / this.checks;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package in.arcadelabs.labaide.cooldown.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with power of two buckets, values are counted in the bucket of their highest bit.
+ * <p>
+ * Recording is two {@link LongAdder} increments and a {@link LongAccumulator} update, cheap and contention free
+ * enough to stay on in production, at the price of percentiles being precise to a factor of two only.
+ */
+public final class LatencyHistogram {
+
+  private static final int BUCKETS = 64;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * @param value The value to be recorded, negative values are recorded as 0
+   */
+  public void record(long value) {
+    if (value < 0L)
+      value = 0L;
+    this.buckets[value == 0L ? 0 : 63 - Long.numberOfLeadingZeros(value)].increment();
+    this.sum.add(value);
+    this.max.accumulate(value);
+  }
+
+  public void reset() {
+    for (LongAdder bucket : this.buckets) {
+      bucket.reset();
+    }
+    this.sum.reset();
+    this.max.reset();
+  }
+
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long count = 0L;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = this.buckets[i].sum();
+      count += counts[i];
+    }
+    return new Snapshot(counts, count, this.sum.sum(), this.max.get());
+  }
+
+  /**
+   * Point in time copy of a {@link LatencyHistogram}, only roughly consistent while values are being recorded
+   */
+  public record Snapshot(long[] buckets, long count, long sum, long max) {
+
+    public double mean() {
+      return this.count == 0L ? 0D : (double) this.sum / this.count;
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return Returns the upper bound of the bucket holding the given percentile
+     */
+    public long percentile(double percentile) {
+      if (this.count == 0L)
+        return 0L;
+
+      long rank = (long) Math.ceil(this.count * Math.min(Math.max(percentile, 0D), 100D) / 100D);
+      long seen = 0L;
+      for (int i = 0; i < this.buckets.length; i++) {
+        seen += this.buckets[i];
+        if (seen >= rank && seen > 0L)
+          return Math.min(i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1L, this.max);
+      }
+      return this.max;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package in.arcadelabs.labaide.cooldown.persistence;
+
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The append-only journal of a {@link PersistentCooldown}, kept in a memory-mapped file of fixed capacity.
+ * <p>
+ * Layout: {@code [int magic][long epoch]} followed by records of {@code [byte op][long expiryTime][key]}. The op byte of
+ * a record is written last, so a record torn by a crash reads as the end of the journal. The unused tail of the file is
+ * always zeroed, which is the end marker.
+ */
+final class CooldownJournal<T> implements AutoCloseable {
+
+  static final byte END = 0;
+  static final byte SET = 1;
+  static final byte REMOVE = 2;
+  static final byte CLEAR = 3;
+
+  private static final int MAGIC = 0x4C41434A;
+  private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+  private static final int RECORD_HEADER_SIZE = Byte.BYTES + Long.BYTES;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final CooldownKeyCodec<T> codec;
+  private long epoch;
+
+  CooldownJournal(Path file, int capacity, CooldownKeyCodec<T> codec) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0L, Math.max(capacity, HEADER_SIZE + RECORD_HEADER_SIZE));
+    this.codec = codec;
+  }
+
+  /**
+   * Replays the records onto the cooldown if the journal belongs to the given snapshot epoch, dropping expired keys
+   *
+   * @return Returns true if the journal was replayed
+   */
+  boolean replay(long snapshotEpoch, ICooldown<T> cooldown, long now) {
+    this.buffer.position(0);
+    if (this.buffer.getInt() != MAGIC || this.buffer.getLong() != snapshotEpoch)
+      return false;
+
+    while (this.buffer.remaining() >= RECORD_HEADER_SIZE) {
+      int start = this.buffer.position();
+      byte op = this.buffer.get();
+      if (op == END) {
+        this.buffer.position(start);
+        break;
+      }
+
+      long expiryTime = this.buffer.getLong();
+      if (op == CLEAR) {
+        cooldown.clear();
+        continue;
+      }
+
+      T key = this.codec.read(this.buffer);
+      if (op == SET && expiryTime > now)
+        cooldown.setCooldown(key, expiryTime - now, TimeUnit.MILLISECONDS);
+      else
+        cooldown.removeCooldown(key);
+    }
+    this.epoch = snapshotEpoch;
+    return true;
+  }
+
+  /**
+   * Wipes the journal and starts it over for the given snapshot epoch
+   */
+  void reset(long epoch) {
+    this.buffer.position(0);
+    this.buffer.putInt(MAGIC).putLong(epoch);
+    byte[] zeroes = new byte[Math.min(8192, this.buffer.remaining())];
+    while (this.buffer.hasRemaining())
+      this.buffer.put(zeroes, 0, Math.min(zeroes.length, this.buffer.remaining()));
+    this.buffer.position(HEADER_SIZE);
+    this.epoch = epoch;
+  }
+
+  /**
+   * @return Returns false if the record does not fit anymore, the journal has to be compacted then
+   */
+  boolean append(byte op, T key, long expiryTime) {
+    int size = RECORD_HEADER_SIZE + (key == null ? 0 : this.codec.sizeOf(key));
+    if (this.buffer.remaining() < size + 1)
+      return false;
+
+    int start = this.buffer.position();
+    try {
+      this.buffer.position(start + 1);
+      this.buffer.putLong(expiryTime);
+      if (key != null)
+        this.codec.write(key, this.buffer);
+    } catch (RuntimeException e) {
+      // Zero the torn record and rewind, a record left without its op byte would end the journal on replay
+      for (int i = start; i < start + size; i++)
+        this.buffer.put(i, END);
+      this.buffer.position(start);
+      throw e;
+    }
+    this.buffer.put(start, op);
+    return true;
+  }
+
+  long getEpoch() {
+    return epoch;
+  }
+
+  void force() {
+    this.buffer.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.force();
+    this.channel.close();
+  }
+}
@@ -0,0 +1,97 @@
+package in.arcadelabs.labaide.cooldown.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Writes and reads cooldown keys in a compact binary form, straight from and into a {@link ByteBuffer}.
+ *
+ * @param <T> Type of the keys
+ */
+public interface CooldownKeyCodec<T> {
+
+  CooldownKeyCodec<UUID> UUID = new CooldownKeyCodec<>() {
+    @Override
+    public int sizeOf(java.util.UUID key) {
+      return 2 * Long.BYTES;
+    }
+
+    @Override
+    public void write(java.util.UUID key, ByteBuffer buffer) {
+      buffer.putLong(key.getMostSignificantBits()).putLong(key.getLeastSignificantBits());
+    }
+
+    @Override
+    public java.util.UUID read(ByteBuffer buffer) {
+      return new java.util.UUID(buffer.getLong(), buffer.getLong());
+    }
+  };
+
+  CooldownKeyCodec<String> STRING = new CooldownKeyCodec<>() {
+    @Override
+    public int sizeOf(String key) {
+      return Short.BYTES + key.length() * 3;
+    }
+
+    @Override
+    public void write(String key, ByteBuffer buffer) {
+      byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+      if (bytes.length > 0xFFFF)
+        throw new IllegalArgumentException("Key is too long to be persisted: " + bytes.length + " bytes");
+      buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    @Override
+    public String read(ByteBuffer buffer) {
+      byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+
+  CooldownKeyCodec<Integer> INTEGER = new CooldownKeyCodec<>() {
+    @Override
+    public int sizeOf(Integer key) {
+      return Integer.BYTES;
+    }
+
+    @Override
+    public void write(Integer key, ByteBuffer buffer) {
+      buffer.putInt(key);
+    }
+
+    @Override
+    public Integer read(ByteBuffer buffer) {
+      return buffer.getInt();
+    }
+  };
+
+  CooldownKeyCodec<Long> LONG = new CooldownKeyCodec<>() {
+    @Override
+    public int sizeOf(Long key) {
+      return Long.BYTES;
+    }
+
+    @Override
+    public void write(Long key, ByteBuffer buffer) {
+      buffer.putLong(key);
+    }
+
+    @Override
+    public Long read(ByteBuffer buffer) {
+      return buffer.getLong();
+    }
+  };
+
+  /**
+   * @param key The key to be written
+   * @return Returns the maximum amount of bytes {@link #write(Object, ByteBuffer)} may take for the key
+   */
+  int sizeOf(T key);
+
+  void write(T key, ByteBuffer buffer);
+
+  T read(ByteBuffer buffer);
+
+}
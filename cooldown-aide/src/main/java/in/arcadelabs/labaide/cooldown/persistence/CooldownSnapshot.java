@@ -0,0 +1,96 @@
+package in.arcadelabs.labaide.cooldown.persistence;
+
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The compact snapshot file of a {@link PersistentCooldown}.
+ * <p>
+ * Layout: {@code [int magic][long epoch][int count]} followed by {@code count} times {@code [long expiryTime][key]}.
+ * The epoch ties the snapshot to the journal written after it.
+ */
+final class CooldownSnapshot {
+
+  static final int MAGIC = 0x4C414353;
+  private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private CooldownSnapshot() {
+  }
+
+  /**
+   * Writes the entries to a temporary file first and moves it over the snapshot, so a crash never leaves a torn one
+   */
+  static <T> void write(Path file, long epoch, Map<T, Long> entries, CooldownKeyCodec<T> codec, long now) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.putInt(MAGIC).putLong(epoch).putInt(0);
+
+      int count = 0;
+      for (Map.Entry<T, Long> entry : entries.entrySet()) {
+        if (entry.getValue() <= now)
+          continue;
+
+        int size = Long.BYTES + codec.sizeOf(entry.getKey());
+        if (buffer.remaining() < size) {
+          drain(channel, buffer);
+          if (buffer.capacity() < size)
+            buffer = ByteBuffer.allocate(size);
+        }
+        buffer.putLong(entry.getValue());
+        codec.write(entry.getKey(), buffer);
+        count++;
+      }
+      drain(channel, buffer);
+
+      channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, count), Integer.BYTES + Long.BYTES);
+      channel.force(false);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Loads every entry that has not expired yet straight into the cooldown
+   *
+   * @return Returns the epoch of the snapshot, or 0 if there is none
+   */
+  static <T> long load(Path file, ICooldown<T> cooldown, CooldownKeyCodec<T> codec, long now) throws IOException {
+    if (!Files.exists(file) || Files.size(file) < HEADER_SIZE)
+      return 0L;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+      if (buffer.getInt() != MAGIC)
+        throw new IOException("Not a cooldown snapshot: " + file);
+
+      long epoch = buffer.getLong();
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        long expiryTime = buffer.getLong();
+        T key = codec.read(buffer);
+        if (expiryTime > now)
+          cooldown.setCooldown(key, expiryTime - now, TimeUnit.MILLISECONDS);
+      }
+      return epoch;
+    }
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    buffer.clear();
+  }
+}
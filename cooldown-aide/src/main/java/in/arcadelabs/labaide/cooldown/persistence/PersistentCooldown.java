@@ -0,0 +1,439 @@
+package in.arcadelabs.labaide.cooldown.persistence;
+
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownVisitor;
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a cooldown provider so that its keys survive restarts.
+ * <p>
+ * The state is kept as a compact binary snapshot plus an append-only journal in a memory-mapped file, every
+ * {@link #setCooldown(Object)} and {@link #removeCooldown(Object)} costs one record appended to the mapped memory. Once
+ * the journal is full, the records go on in a second journal while a background thread compacts the state into a new
+ * snapshot, the caller never waits for the snapshot unless the second journal fills up before it is written. On startup
+ * the snapshot and the journals following it are read in one pass and decoded straight into the wrapped provider, keys
+ * that expired while the server was down are dropped.
+ * <p>
+ * Checks are passed through to the wrapped provider untouched.
+ *
+ * @param <T> Type of the keys
+ */
+public class PersistentCooldown<T> implements ICooldown<T> {
+
+  private final ICooldown<T> cooldown;
+  private final CooldownKeyCodec<T> codec;
+  private final Path snapshotFile;
+  private final List<CooldownJournal<T>> journals = new ArrayList<>(2);
+  private final long defaultExpiryDuration;
+  private final CooldownClock clock;
+  private final ExecutorService compactionExecutor;
+  private CooldownJournal<T> journal;
+  private CompletableFuture<Void> compaction;
+
+  private PersistentCooldown(ICooldown<T> cooldown, CooldownKeyCodec<T> codec, Path directory, String name,
+                             int journalCapacity, long defaultExpiryDuration, CooldownClock clock) {
+    this.cooldown = cooldown;
+    this.codec = codec;
+    this.clock = clock;
+    this.defaultExpiryDuration = defaultExpiryDuration;
+    this.snapshotFile = directory.resolve(name + ".snapshot");
+    this.compactionExecutor = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "LabAide-CooldownCompaction");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      Files.createDirectories(directory);
+      this.journals.add(new CooldownJournal<>(directory.resolve(name + ".journal"), journalCapacity, codec));
+      this.journals.add(new CooldownJournal<>(directory.resolve(name + ".journal.1"), journalCapacity, codec));
+      this.load();
+    } catch (IOException | RuntimeException e) {
+      // A journal left open would stay mapped, a corrupted key fails the replay with a RuntimeException of the codec
+      for (CooldownJournal<T> journal : this.journals) {
+        try {
+          journal.close();
+        } catch (IOException | RuntimeException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+      }
+      this.compactionExecutor.shutdown();
+      throw new CooldownServiceException("Unable to open the cooldown store " + name, e);
+    }
+  }
+
+  /**
+   * Loads the snapshot, then the journal following it, then the journal rotated to while the next snapshot was being
+   * written, if the server went down before that snapshot was done
+   */
+  private void load() throws IOException {
+    long now = this.clock.currentTimeMillis();
+    long epoch = CooldownSnapshot.load(this.snapshotFile, this.cooldown, this.codec, now);
+    for (long next = epoch; next <= epoch + 1; next++) {
+      for (CooldownJournal<T> journal : this.journals) {
+        if (journal.replay(next, this.cooldown, now))
+          this.journal = journal;
+      }
+    }
+
+    if (this.journal == null) {
+      this.journal = this.journals.get(0);
+      this.journal.reset(epoch);
+    } else if (this.journal.getEpoch() != epoch) {
+      this.writeSnapshot(this.journal.getEpoch());
+    }
+  }
+
+  /**
+   * Writes the current state into a new snapshot and starts the journal over, on the calling thread
+   */
+  public synchronized void snapshot() {
+    this.awaitCompaction();
+    long epoch = this.journal.getEpoch() + 1;
+    this.writeSnapshot(epoch);
+    this.journal.reset(epoch);
+  }
+
+  private void writeSnapshot(long epoch) {
+    try {
+      CooldownSnapshot.write(this.snapshotFile, epoch, this.cooldown.getAllCooldown(), this.codec, this.clock.currentTimeMillis());
+    } catch (IOException e) {
+      throw new CooldownServiceException("Unable to write the cooldown snapshot", e);
+    }
+  }
+
+  /**
+   * Switches over to the other journal and writes the snapshot it follows in the background. Records appended meanwhile
+   * go to both the new journal and, depending on timing, the snapshot, replaying them twice is harmless
+   */
+  private void rotate() {
+    this.awaitCompaction();
+    long epoch = this.journal.getEpoch() + 1;
+    CooldownJournal<T> next = this.journals.get(0) == this.journal ? this.journals.get(1) : this.journals.get(0);
+    next.reset(epoch);
+    this.journal = next;
+    this.compaction = CompletableFuture.runAsync(() -> this.writeSnapshot(epoch), this.compactionExecutor);
+  }
+
+  /**
+   * Waits for the snapshot being written in the background, the journal it replaces must not be reused before. A failed
+   * background snapshot is written again on the calling thread
+   */
+  private void awaitCompaction() {
+    CompletableFuture<Void> compaction = this.compaction;
+    if (compaction == null)
+      return;
+
+    this.compaction = null;
+    try {
+      compaction.join();
+    } catch (CompletionException e) {
+      this.writeSnapshot(this.journal.getEpoch());
+    }
+  }
+
+  private synchronized void append(byte op, T key, long expiryTime) {
+    if (this.journal.append(op, key, expiryTime))
+      return;
+
+    this.rotate();
+    // A record larger than a whole journal is only kept by the snapshot
+    this.journal.append(op, key, expiryTime);
+  }
+
+  /**
+   * Checks whether a given key is in cooldown. Returns false if the key is absent
+   *
+   * @param key The key to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  @Override
+  public boolean isInCooldown(T key) {
+    return this.cooldown.isInCooldown(key);
+  }
+
+  /**
+   * Set the given key to cooldown with the default cooldown timer provided
+   *
+   * @param key The key that has to be set on Cooldown
+   */
+  @Override
+  public void setCooldown(T key) {
+    this.setCooldown(key, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
+    this.cooldown.setCooldown(key, customTime, customTimeUnit);
+    this.append(CooldownJournal.SET, key, this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime));
+  }
+
+  /**
+   * Remove a key from the cooldown if it exists in the check, else return silently
+   *
+   * @param key The key that has to be removed
+   */
+  @Override
+  public void removeCooldown(T key) {
+    this.cooldown.removeCooldown(key);
+    this.append(CooldownJournal.REMOVE, key, 0L);
+  }
+
+  /**
+   * Set all the given keys to cooldown with the default cooldown timer provided
+   *
+   * @param keys The keys that have to be set on Cooldown
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys) {
+    this.setCooldownAll(keys, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time, journaled in one go
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    // Read once, the wrapped provider would use up an iterable that can only be iterated a single time
+    List<T> set = new ArrayList<>();
+    keys.forEach(set::add);
+    this.cooldown.setCooldownAll(set, customTime, customTimeUnit);
+    long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    synchronized (this) {
+      for (T key : set) {
+        this.append(CooldownJournal.SET, key, expiryTime);
+      }
+    }
+  }
+
+  /**
+   * Remove all the given keys from the cooldown, journaled in one go
+   *
+   * @param keys The keys that have to be removed
+   */
+  @Override
+  public void removeCooldownAll(Collection<? extends T> keys) {
+    this.cooldown.removeCooldownAll(keys);
+    synchronized (this) {
+      for (T key : keys) {
+        this.append(CooldownJournal.REMOVE, key, 0L);
+      }
+    }
+  }
+
+  /**
+   * Gets a copy of all the cooldown that has been in the registry
+   *
+   * @return Returns a copy of {@link Map<T, Long>} instance of the original cache
+   */
+  @Override
+  public Map<T, Long> getAllCooldown() {
+    return this.cooldown.getAllCooldown();
+  }
+
+  @Override
+  public Map<T, Long> getCooldownView() {
+    return this.cooldown.getCooldownView();
+  }
+
+  @Override
+  public void forEachCooldown(CooldownVisitor<? super T> visitor) {
+    this.cooldown.forEachCooldown(visitor);
+  }
+
+  @Override
+  public CompletableFuture<T> awaitExpiry(T key) {
+    return this.cooldown.awaitExpiry(key);
+  }
+
+  @Override
+  public long getRemainingTime(T key, TimeUnit timeUnit) {
+    return this.cooldown.getRemainingTime(key, timeUnit);
+  }
+
+  /**
+   * Clears all the keys in the cooldown check
+   */
+  @Override
+  public void clear() {
+    this.cooldown.clear();
+    this.append(CooldownJournal.CLEAR, null, 0L);
+  }
+
+  /**
+   * Saves a final snapshot, closes the files and flushes the wrapped provider.
+   * The persisted keys are kept and loaded again by the next instance
+   */
+  @Override
+  public synchronized void flush() {
+    try {
+      this.snapshot();
+      for (CooldownJournal<T> journal : this.journals)
+        journal.close();
+    } catch (IOException e) {
+      throw new CooldownServiceException(e);
+    } finally {
+      this.compactionExecutor.shutdown();
+      this.cooldown.flush();
+    }
+  }
+
+  public ICooldown<T> getCooldown() {
+    return cooldown;
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class PersistentCooldownBuilder<TKey> {
+    private ICooldown<TKey> cooldown;
+    private CooldownKeyCodec<TKey> codec;
+    private Path directory;
+    private String name;
+    private int journalCapacity;
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+
+    public PersistentCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the provider whose keys should be persisted, it should not be used directly anymore
+     *
+     * @param cooldown The provider to be wrapped
+     * @return The builder
+     */
+    public PersistentCooldownBuilder<TKey> withCooldown(ICooldown<TKey> cooldown) {
+      this.cooldown = cooldown;
+      return this;
+    }
+
+    public PersistentCooldownBuilder<TKey> withKeyCodec(CooldownKeyCodec<TKey> codec) {
+      this.codec = codec;
+      return this;
+    }
+
+    /**
+     * Sets where the files are stored, usually the data folder of the plugin
+     *
+     * @param directory The directory holding the files
+     * @param name      The name of the files, unique per cooldown
+     * @return The builder
+     */
+    public PersistentCooldownBuilder<TKey> withStorage(Path directory, String name) {
+      this.directory = directory;
+      this.name = name;
+      return this;
+    }
+
+    /**
+     * Sets the size of each of the two mapped journals, a journal is compacted into a snapshot whenever it fills up
+     *
+     * @param journalCapacity capacity in bytes
+     * @return The builder
+     */
+    public PersistentCooldownBuilder<TKey> withJournalCapacity(int journalCapacity) {
+      this.journalCapacity = journalCapacity;
+      return this;
+    }
+
+    /**
+     * Sets the default expiry time used by {@link PersistentCooldown#setCooldown(Object)}, it should match the one of
+     * the wrapped provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public PersistentCooldownBuilder<TKey> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public PersistentCooldownBuilder<TKey> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    /**
+     * Sets the clock the persisted expiry times are read off, it must be the clock of the wrapped cooldown provider.
+     * Defaults to the clock of the wrapped provider when it is an {@link AbstractCooldown}
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public PersistentCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public PersistentCooldownBuilder<TKey> withDefaultSettings() {
+      this.journalCapacity = 1 << 20;
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = null;
+      this.defaultExpiryDuration = 1L;
+      return this;
+    }
+
+    public ICooldown<TKey> getCooldown() {
+      return cooldown;
+    }
+
+    public CooldownKeyCodec<TKey> getCodec() {
+      return codec;
+    }
+
+    public Path getDirectory() {
+      return directory;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getJournalCapacity() {
+      return journalCapacity;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public PersistentCooldown<TKey> build() {
+      if (this.cooldown == null || this.codec == null || this.directory == null || this.name == null)
+        throw new CooldownServiceException("A cooldown, a key codec and a storage location are required");
+
+      CooldownClock clock = this.clock;
+      if (clock == null)
+        clock = this.cooldown instanceof AbstractCooldown<?> wrapped ? wrapped.getClock() : CooldownClock.system();
+
+      return new PersistentCooldown<TKey>(cooldown, codec, directory, name, journalCapacity, this.timeUnit.toMillis(this.defaultExpiryDuration), clock);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package in.arcadelabs.labaide.cooldown.persistence;
+
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the cooldowns of a player out of memory into the persistent data container of the player when they quit, and
+ * back when they join, the same way {@code InventoryUtils#saveInventory} of common-aide stores inventories. The
+ * cooldown providers only hold the players that are online, and the cooldowns survive relogs and restarts along with
+ * the player data.
+ * <p>
+ * All the tracked cooldowns of a player are stored under one key as a compact byte array:
+ * {@code [byte version][short count]} followed by {@code count} times {@code [name][long expiryTime]}, where the name
+ * is the one the cooldown was tracked with and the expiry time is in {@link System#currentTimeMillis()}, so the time a
+ * player spends offline counts towards their cooldowns. Cooldowns stored under a name that is not tracked anymore are
+ * dropped on join.
+ * <p>
+ * Do not track the same cooldown with a {@link in.arcadelabs.labaide.cooldown.lifecycle.CooldownLifecycleListener}
+ * as well, it would remove the keys before they are saved.
+ */
+public class PlayerDataCooldownStore implements Listener {
+
+  private static final byte VERSION = 1;
+  private static final int HEADER_SIZE = Byte.BYTES + Short.BYTES;
+
+  private final Map<String, ICooldown<UUID>> tracked = new ConcurrentHashMap<>();
+  private final NamespacedKey dataKey;
+
+  /**
+   * @param dataKey The key the cooldowns are stored under in the player data
+   */
+  public PlayerDataCooldownStore(NamespacedKey dataKey) {
+    this.dataKey = dataKey;
+  }
+
+  /**
+   * Stores the cooldowns under the key {@code cooldowns} of the given plugin
+   *
+   * @param plugin The plugin owning the cooldowns
+   */
+  public PlayerDataCooldownStore(Plugin plugin) {
+    this(new NamespacedKey(plugin, "cooldowns"));
+  }
+
+  /**
+   * Tracks a cooldown keyed by the unique ids of the players
+   *
+   * @param name     The name the cooldown is stored under, unique per store and kept across restarts
+   * @param cooldown The cooldown to be tracked
+   * @return This store
+   */
+  public PlayerDataCooldownStore track(String name, ICooldown<UUID> cooldown) {
+    if (this.tracked.putIfAbsent(name, cooldown) != null)
+      throw new IllegalArgumentException("A cooldown is already tracked as " + name);
+
+    return this;
+  }
+
+  /**
+   * Stops tracking the cooldown tracked under the given name, its keys are left as they are
+   *
+   * @param name The name the cooldown was tracked with
+   */
+  public void untrack(String name) {
+    this.tracked.remove(name);
+  }
+
+  /**
+   * Registers this store to the given plugin
+   *
+   * @param plugin The plugin owning the cooldowns
+   * @return This store
+   */
+  public PlayerDataCooldownStore register(Plugin plugin) {
+    plugin.getServer().getPluginManager().registerEvents(this, plugin);
+    return this;
+  }
+
+  /**
+   * Writes the cooldowns of the player into their persistent data container and then removes them from the tracked
+   * cooldowns, so a failing write leaves them in memory. A player without any cooldown has the stored data removed
+   *
+   * @param player The player whose cooldowns are to be saved
+   */
+  public void save(Player player) {
+    UUID uniqueId = player.getUniqueId();
+    long now = System.currentTimeMillis();
+
+    int count = 0;
+    String[] names = new String[this.tracked.size()];
+    long[] expiryTimes = new long[names.length];
+    List<ICooldown<UUID>> cooldowns = new ArrayList<>(names.length);
+    int size = HEADER_SIZE;
+    for (Map.Entry<String, ICooldown<UUID>> entry : this.tracked.entrySet()) {
+      if (cooldowns.size() == names.length)
+        break;
+
+      ICooldown<UUID> cooldown = entry.getValue();
+      cooldowns.add(cooldown);
+      long remaining = cooldown.getRemainingTime(uniqueId, TimeUnit.MILLISECONDS);
+      if (remaining <= 0L)
+        continue;
+
+      names[count] = entry.getKey();
+      expiryTimes[count] = now + remaining;
+      size += CooldownKeyCodec.STRING.sizeOf(entry.getKey()) + Long.BYTES;
+      count++;
+    }
+
+    PersistentDataContainer container = player.getPersistentDataContainer();
+    if (count == 0) {
+      container.remove(this.dataKey);
+    } else {
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      buffer.put(VERSION).putShort((short) count);
+      for (int i = 0; i < count; i++) {
+        CooldownKeyCodec.STRING.write(names[i], buffer);
+        buffer.putLong(expiryTimes[i]);
+      }
+      container.set(this.dataKey, PersistentDataType.BYTE_ARRAY, Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    for (ICooldown<UUID> cooldown : cooldowns) {
+      cooldown.removeCooldown(uniqueId);
+    }
+  }
+
+  /**
+   * Restores the cooldowns of the player from their persistent data container and removes the stored data, cooldowns
+   * that ran out meanwhile are dropped
+   *
+   * @param player The player whose cooldowns are to be loaded
+   */
+  public void load(Player player) {
+    PersistentDataContainer container = player.getPersistentDataContainer();
+    byte[] data = container.get(this.dataKey, PersistentDataType.BYTE_ARRAY);
+    if (data == null)
+      return;
+
+    container.remove(this.dataKey);
+    UUID uniqueId = player.getUniqueId();
+    long now = System.currentTimeMillis();
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    try {
+      if (buffer.get() != VERSION)
+        return;
+
+      int count = Short.toUnsignedInt(buffer.getShort());
+      for (int i = 0; i < count; i++) {
+        String name = CooldownKeyCodec.STRING.read(buffer);
+        long remaining = buffer.getLong() - now;
+        ICooldown<UUID> cooldown = this.tracked.get(name);
+        if (cooldown != null && remaining > 0L)
+          cooldown.setCooldown(uniqueId, remaining, TimeUnit.MILLISECONDS);
+      }
+    } catch (BufferUnderflowException ignored) {
+      // Corrupted data, the cooldowns read so far are kept
+    }
+  }
+
+  /**
+   * Saves the cooldowns of every given player, meant for onDisable, where the plugin is disabled before the players
+   * are kicked
+   *
+   * @param players The players online, e.g. {@code Bukkit.getOnlinePlayers()}
+   */
+  public void saveAll(Iterable<? extends Player> players) {
+    for (Player player : players) {
+      this.save(player);
+    }
+  }
+
+  /**
+   * Loads the cooldowns of every given player, meant for onEnable, for players that joined before the plugin got
+   * enabled, e.g. on a reload
+   *
+   * @param players The players online, e.g. {@code Bukkit.getOnlinePlayers()}
+   */
+  public void loadAll(Iterable<? extends Player> players) {
+    for (Player player : players) {
+      this.load(player);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.LOWEST)
+  public void onPlayerJoin(PlayerJoinEvent event) {
+    this.load(event.getPlayer());
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void onPlayerQuit(PlayerQuitEvent event) {
+    this.save(event.getPlayer());
+  }
+
+  public NamespacedKey getDataKey() {
+    return dataKey;
+  }
+}
@@ -0,0 +1,100 @@
+package in.arcadelabs.labaide.cooldown.replication;
+
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+import in.arcadelabs.labaide.cooldown.persistence.CooldownKeyCodec;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The batched changes of a {@link ReplicatedCooldown}, as published on the transport.
+ * <p>
+ * Layout: {@code [int magic][long nodeMost][long nodeLeast][byte cleared][int count]} followed by {@code count} times
+ * {@code [byte op][long remainingMillis, SET only][key]}. The time left is sent instead of the expiry time, so the
+ * servers do not need synchronized clocks, only the delivery delay of the transport is lost. A delta with the cleared
+ * flag set clears the cooldown before its records are applied.
+ */
+final class CooldownDelta {
+
+  static final byte SET = 1;
+  static final byte REMOVE = 2;
+
+  /**
+   * Marks a removed key in the pending changes, in place of an expiry time
+   */
+  static final long REMOVED = Long.MIN_VALUE;
+
+  private static final int MAGIC = 0x4C414344;
+  private static final int HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES + Byte.BYTES + Integer.BYTES;
+
+  private CooldownDelta() {
+  }
+
+  /**
+   * Encodes the pending changes, keys whose expiry time has passed meanwhile are sent as removed
+   *
+   * @param changes The expiry time of each changed key, or {@link #REMOVED}
+   */
+  static <T> byte[] encode(UUID node, boolean cleared, Map<T, Long> changes, CooldownKeyCodec<T> codec, long now) {
+    int size = HEADER_SIZE;
+    for (Map.Entry<T, Long> entry : changes.entrySet())
+      size += Byte.BYTES + Long.BYTES + codec.sizeOf(entry.getKey());
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC)
+        .putLong(node.getMostSignificantBits())
+        .putLong(node.getLeastSignificantBits())
+        .put((byte) (cleared ? 1 : 0))
+        .putInt(changes.size());
+
+    for (Map.Entry<T, Long> entry : changes.entrySet()) {
+      long expiryTime = entry.getValue();
+      if (expiryTime == REMOVED || expiryTime <= now) {
+        buffer.put(REMOVE);
+      } else {
+        buffer.put(SET).putLong(expiryTime - now);
+      }
+      codec.write(entry.getKey(), buffer);
+    }
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  /**
+   * Applies a delta published by another server onto the cooldown, deltas of the given node itself are skipped
+   *
+   * @return Returns false if the message is not a delta or was published by the given node
+   */
+  static <T> boolean apply(byte[] message, ICooldown<T> cooldown, CooldownKeyCodec<T> codec, UUID node) {
+    ByteBuffer buffer = ByteBuffer.wrap(message);
+    try {
+      if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+        return false;
+      long mostSigBits = buffer.getLong();
+      long leastSigBits = buffer.getLong();
+      if (mostSigBits == node.getMostSignificantBits() && leastSigBits == node.getLeastSignificantBits())
+        return false;
+
+      if (buffer.get() != 0)
+        cooldown.clear();
+
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        byte op = buffer.get();
+        long remaining = op == SET ? buffer.getLong() : 0L;
+        T key = codec.read(buffer);
+        if (op == SET)
+          cooldown.setCooldown(key, remaining, TimeUnit.MILLISECONDS);
+        else
+          cooldown.removeCooldown(key);
+      }
+      return true;
+    } catch (BufferUnderflowException e) {
+      // A truncated delta, the records read so far are kept
+      return false;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package in.arcadelabs.labaide.cooldown.replication;
+
+import java.util.function.Consumer;
+
+/**
+ * The channel a {@link ReplicatedCooldown} publishes its deltas through and receives the deltas of the other servers
+ * from, e.g. a Redis pub/sub connection or a message broker shared by every backend behind the proxy.
+ * <p>
+ * Messages are opaque byte arrays. A transport is expected to deliver every message published on a channel to every
+ * subscriber of that channel, the publishing server included, and to keep the order of the messages of one publisher.
+ * Listeners may be called on any thread.
+ */
+public interface CooldownTransport {
+
+  /**
+   * Sends the given message to every subscriber of the channel
+   *
+   * @param channel The channel to publish on
+   * @param message The message, it must not be modified afterwards
+   */
+  void publish(String channel, byte[] message);
+
+  /**
+   * Starts delivering the messages published on the given channel to the listener
+   *
+   * @param channel  The channel to listen on
+   * @param listener The listener receiving the messages
+   * @return Returns the handle to stop the delivery with
+   */
+  Subscription subscribe(String channel, Consumer<byte[]> listener);
+
+  interface Subscription {
+
+    void unsubscribe();
+
+  }
+
+}
@@ -0,0 +1,49 @@
+package in.arcadelabs.labaide.cooldown.replication;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * A {@link CooldownTransport} within one JVM, meant for tests and for running several replicated cooldowns side by side
+ * without a broker. Every message is handed to the subscribers of its channel on the publishing thread, or on the given
+ * executor.
+ */
+public class LoopbackCooldownTransport implements CooldownTransport {
+
+  private final Map<String, List<Consumer<byte[]>>> channels = new ConcurrentHashMap<>();
+  private final Executor executor;
+
+  public LoopbackCooldownTransport() {
+    this(Runnable::run);
+  }
+
+  /**
+   * @param executor The executor to deliver the messages on, a single thread keeps the order of the messages
+   */
+  public LoopbackCooldownTransport(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void publish(String channel, byte[] message) {
+    List<Consumer<byte[]>> listeners = this.channels.get(channel);
+    if (listeners == null || listeners.isEmpty())
+      return;
+
+    this.executor.execute(() -> {
+      for (Consumer<byte[]> listener : listeners)
+        listener.accept(message);
+    });
+  }
+
+  @Override
+  public Subscription subscribe(String channel, Consumer<byte[]> listener) {
+    List<Consumer<byte[]>> listeners = this.channels.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>());
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+}
@@ -0,0 +1,465 @@
+package in.arcadelabs.labaide.cooldown.replication;
+
+import in.arcadelabs.labaide.cooldown.abstraction.AbstractCooldown;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownClock;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownScheduler;
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownVisitor;
+import in.arcadelabs.labaide.cooldown.abstraction.ICooldown;
+import in.arcadelabs.labaide.cooldown.exception.CooldownServiceException;
+import in.arcadelabs.labaide.cooldown.persistence.CooldownKeyCodec;
+import in.arcadelabs.labaide.cooldown.scheduler.ExecutorCooldownScheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps a cooldown provider so that its keys are shared by every server subscribed to the same channel, e.g. all the
+ * backends behind one proxy, so players cannot get around a cooldown by switching servers.
+ * <p>
+ * Writes are applied to the wrapped provider right away and collected into a pending batch, where only the latest
+ * change of each key is kept. The batch is published as one compact delta through the {@link CooldownTransport} on
+ * every flush interval. Deltas received from the other servers are applied straight to the wrapped provider.
+ * <p>
+ * Checks are passed through to the wrapped provider untouched, they never wait on the transport. The replication is
+ * eventually consistent, a key set on one server shows up on the others one flush interval plus the delivery delay
+ * later, and concurrent writes to the same key on two servers end up with whichever delta arrives last.
+ *
+ * @param <T> Type of the keys
+ */
+public class ReplicatedCooldown<T> implements ICooldown<T>, Runnable {
+
+  private final ICooldown<T> cooldown;
+  private final CooldownKeyCodec<T> codec;
+  private final CooldownTransport transport;
+  private final String channel;
+  private final UUID nodeId;
+  private final long defaultExpiryDuration;
+  private final CooldownClock clock;
+  private final CooldownScheduler scheduler;
+  private final boolean ownsScheduler;
+  private final CooldownTransport.Subscription subscription;
+  private final CooldownScheduler.Task task;
+
+  private final Object pendingLock = new Object();
+  private Map<T, Long> pending = new LinkedHashMap<>();
+  private boolean pendingClear;
+
+  private ReplicatedCooldown(ICooldown<T> cooldown, CooldownKeyCodec<T> codec, CooldownTransport transport, String channel,
+                             UUID nodeId, long defaultExpiryDuration, CooldownClock clock, CooldownScheduler scheduler,
+                             long flushInterval) {
+    this.cooldown = cooldown;
+    this.codec = codec;
+    this.transport = transport;
+    this.channel = channel;
+    this.nodeId = nodeId;
+    this.defaultExpiryDuration = defaultExpiryDuration;
+    this.clock = clock;
+    this.ownsScheduler = scheduler == null;
+    this.scheduler = scheduler == null ? new ExecutorCooldownScheduler() : scheduler;
+    this.subscription = transport.subscribe(channel, this::receive);
+    this.task = this.scheduler.scheduleAtFixedRate(this, flushInterval, TimeUnit.MILLISECONDS);
+  }
+
+  private void receive(byte[] message) {
+    CooldownDelta.apply(message, this.cooldown, this.codec, this.nodeId);
+  }
+
+  private void record(T key, long expiryTime) {
+    synchronized (this.pendingLock) {
+      this.pending.put(key, expiryTime);
+    }
+  }
+
+  /**
+   * Publishes the changes made since the last flush interval as one delta, returns silently if there are none. A
+   * failing publish is reported to the uncaught exception handler of the thread and retried on the next interval, the
+   * task keeps running
+   */
+  @Override
+  public void run() {
+    try {
+      this.publish();
+    } catch (RuntimeException e) {
+      // A failing transport must not cancel the task and stop the replication for good
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+  }
+
+  // Publishes the pending batch, which is merged back for the next attempt if encoding or publishing it fails
+  private void publish() {
+    Map<T, Long> changes;
+    boolean cleared;
+    synchronized (this.pendingLock) {
+      if (this.pending.isEmpty() && !this.pendingClear)
+        return;
+
+      changes = this.pending;
+      cleared = this.pendingClear;
+      this.pending = new LinkedHashMap<>();
+      this.pendingClear = false;
+    }
+    try {
+      this.transport.publish(this.channel, CooldownDelta.encode(this.nodeId, cleared, changes, this.codec, this.clock.currentTimeMillis()));
+    } catch (RuntimeException e) {
+      this.restore(changes, cleared);
+      throw e;
+    }
+  }
+
+  // Puts an unsent batch back into the pending one, changes recorded since are newer and win
+  private void restore(Map<T, Long> changes, boolean cleared) {
+    synchronized (this.pendingLock) {
+      // A clear recorded since supersedes the whole unsent batch
+      if (this.pendingClear)
+        return;
+
+      this.pendingClear = cleared;
+      changes.forEach(this.pending::putIfAbsent);
+    }
+  }
+
+  /**
+   * Checks whether a given key is in cooldown. Returns false if the key is absent
+   *
+   * @param key The key to be checked
+   * @return Returns true if in cooldown or else false
+   */
+  @Override
+  public boolean isInCooldown(T key) {
+    return this.cooldown.isInCooldown(key);
+  }
+
+  /**
+   * Set the given key to cooldown with the default cooldown timer provided
+   *
+   * @param key The key that has to be set on Cooldown
+   */
+  @Override
+  public void setCooldown(T key) {
+    this.setCooldown(key, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set the given key to the cooldown with the specified expiry time
+   *
+   * @param key            The key that has to be set on Cooldown
+   * @param customTime     How long does the key should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldown(T key, long customTime, TimeUnit customTimeUnit) {
+    this.cooldown.setCooldown(key, customTime, customTimeUnit);
+    this.record(key, this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime));
+  }
+
+  /**
+   * Remove a key from the cooldown if it exists in the check, else return silently
+   *
+   * @param key The key that has to be removed
+   */
+  @Override
+  public void removeCooldown(T key) {
+    this.cooldown.removeCooldown(key);
+    this.record(key, CooldownDelta.REMOVED);
+  }
+
+  /**
+   * Set all the given keys to cooldown with the default cooldown timer provided
+   *
+   * @param keys The keys that have to be set on Cooldown
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys) {
+    this.setCooldownAll(keys, this.defaultExpiryDuration, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Set all the given keys to the cooldown with one and the same expiry time, added to the batch in one go
+   *
+   * @param keys           The keys that have to be set on Cooldown
+   * @param customTime     How long does the keys should be in Cooldown
+   * @param customTimeUnit {@link TimeUnit} of the customTime
+   */
+  @Override
+  public void setCooldownAll(Iterable<? extends T> keys, long customTime, TimeUnit customTimeUnit) {
+    // Read once, the wrapped provider would use up an iterable that can only be iterated a single time
+    List<T> set = new ArrayList<>();
+    keys.forEach(set::add);
+    this.cooldown.setCooldownAll(set, customTime, customTimeUnit);
+    long expiryTime = this.clock.currentTimeMillis() + customTimeUnit.toMillis(customTime);
+    synchronized (this.pendingLock) {
+      for (T key : set)
+        this.pending.put(key, expiryTime);
+    }
+  }
+
+  /**
+   * Remove all the given keys from the cooldown, added to the batch in one go
+   *
+   * @param keys The keys that have to be removed
+   */
+  @Override
+  public void removeCooldownAll(Collection<? extends T> keys) {
+    this.cooldown.removeCooldownAll(keys);
+    synchronized (this.pendingLock) {
+      for (T key : keys)
+        this.pending.put(key, CooldownDelta.REMOVED);
+    }
+  }
+
+  /**
+   * Gets a copy of all the cooldown that has been in the registry
+   *
+   * @return Returns a copy of {@link Map<T, Long>} instance of the original cache
+   */
+  @Override
+  public Map<T, Long> getAllCooldown() {
+    return this.cooldown.getAllCooldown();
+  }
+
+  @Override
+  public Map<T, Long> getCooldownView() {
+    return this.cooldown.getCooldownView();
+  }
+
+  @Override
+  public void forEachCooldown(CooldownVisitor<? super T> visitor) {
+    this.cooldown.forEachCooldown(visitor);
+  }
+
+  @Override
+  public CompletableFuture<T> awaitExpiry(T key) {
+    return this.cooldown.awaitExpiry(key);
+  }
+
+  @Override
+  public long getRemainingTime(T key, TimeUnit timeUnit) {
+    return this.cooldown.getRemainingTime(key, timeUnit);
+  }
+
+  /**
+   * Clears all the keys in the cooldown check, on every server
+   */
+  @Override
+  public void clear() {
+    this.cooldown.clear();
+    synchronized (this.pendingLock) {
+      this.pending.clear();
+      this.pendingClear = true;
+    }
+  }
+
+  /**
+   * Publishes the pending changes, stops the replication and flushes the wrapped provider.
+   * The keys are only cleared on this server, the other servers keep them
+   */
+  @Override
+  public void flush() {
+    try {
+      this.task.cancel();
+      this.publish();
+    } catch (Exception e) {
+      throw new CooldownServiceException(e);
+    } finally {
+      try {
+        this.subscription.unsubscribe();
+        if (this.ownsScheduler)
+          this.scheduler.shutdown();
+      } finally {
+        this.cooldown.flush();
+      }
+    }
+  }
+
+  public ICooldown<T> getCooldown() {
+    return cooldown;
+  }
+
+  public UUID getNodeId() {
+    return nodeId;
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  //----------------------------------------------------------------------------
+  // BUILDER
+  //----------------------------------------------------------------------------
+  public static class ReplicatedCooldownBuilder<TKey> {
+    private ICooldown<TKey> cooldown;
+    private CooldownKeyCodec<TKey> codec;
+    private CooldownTransport transport;
+    private String channel;
+    private UUID nodeId;
+    private long defaultExpiryDuration;
+    private TimeUnit timeUnit;
+    private CooldownClock clock;
+    private CooldownScheduler scheduler;
+    private long flushInterval;
+    private TimeUnit flushIntervalUnit;
+
+    public ReplicatedCooldownBuilder() {
+      this.withDefaultSettings();
+    }
+
+    /**
+     * Sets the provider whose keys should be replicated, it should not be used directly anymore
+     *
+     * @param cooldown The provider to be wrapped
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withCooldown(ICooldown<TKey> cooldown) {
+      this.cooldown = cooldown;
+      return this;
+    }
+
+    public ReplicatedCooldownBuilder<TKey> withKeyCodec(CooldownKeyCodec<TKey> codec) {
+      this.codec = codec;
+      return this;
+    }
+
+    /**
+     * Sets the transport the deltas are exchanged through and the channel they are published on, the channel should be
+     * unique per cooldown and the same on every server
+     *
+     * @param transport The transport, e.g. a {@link LoopbackCooldownTransport} in tests
+     * @param channel   The channel of the cooldown
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withTransport(CooldownTransport transport, String channel) {
+      this.transport = transport;
+      this.channel = channel;
+      return this;
+    }
+
+    /**
+     * Sets the id this server signs its deltas with, so it can skip its own deltas when they come back. Defaults to a
+     * random id
+     *
+     * @param nodeId id unique per server
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withNodeId(UUID nodeId) {
+      this.nodeId = nodeId;
+      return this;
+    }
+
+    /**
+     * Sets how often the pending changes are published, a shorter interval narrows the window in which another server
+     * does not know about a key yet at the cost of more, smaller deltas
+     *
+     * @param flushInterval flush interval
+     * @param unit          {@link TimeUnit} of the flushInterval
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withFlushInterval(long flushInterval, TimeUnit unit) {
+      if (flushInterval <= 0)
+        throw new IllegalArgumentException("Flush interval must be greater than 0");
+
+      this.flushInterval = flushInterval;
+      this.flushIntervalUnit = unit;
+      return this;
+    }
+
+    /**
+     * Sets the scheduler publishing the pending changes, e.g. the one of a shared
+     * {@link in.arcadelabs.labaide.cooldown.CooldownService}. Defaults to a daemon thread of its own
+     *
+     * @param scheduler The scheduler, it is not shut down by {@link ReplicatedCooldown#flush()}
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withScheduler(CooldownScheduler scheduler) {
+      this.scheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * Sets the default expiry time used by {@link ReplicatedCooldown#setCooldown(Object)}, it should match the one of
+     * the wrapped provider
+     *
+     * @param expiryTime expiry time
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withDefaultExpiryTime(long expiryTime) {
+      this.defaultExpiryDuration = expiryTime;
+      return this;
+    }
+
+    public ReplicatedCooldownBuilder<TKey> withDefaultExpiryTimeUnit(TimeUnit unit) {
+      this.timeUnit = unit;
+      return this;
+    }
+
+    /**
+     * Sets the clock the time left of the replicated keys is read off, it must be the clock of the wrapped cooldown
+     * provider. Defaults to the clock of the wrapped provider when it is an {@link AbstractCooldown}
+     *
+     * @param clock the clock, e.g. one of {@link in.arcadelabs.labaide.cooldown.clock}
+     * @return The builder
+     */
+    public ReplicatedCooldownBuilder<TKey> withClock(CooldownClock clock) {
+      this.clock = clock;
+      return this;
+    }
+
+    public ReplicatedCooldownBuilder<TKey> withDefaultSettings() {
+      this.nodeId = UUID.randomUUID();
+      this.timeUnit = TimeUnit.SECONDS;
+      this.clock = null;
+      this.scheduler = null;
+      this.defaultExpiryDuration = 1L;
+      this.flushInterval = 50L;
+      this.flushIntervalUnit = TimeUnit.MILLISECONDS;
+      return this;
+    }
+
+    public ICooldown<TKey> getCooldown() {
+      return cooldown;
+    }
+
+    public CooldownKeyCodec<TKey> getCodec() {
+      return codec;
+    }
+
+    public CooldownTransport getTransport() {
+      return transport;
+    }
+
+    public String getChannel() {
+      return channel;
+    }
+
+    public UUID getNodeId() {
+      return nodeId;
+    }
+
+    public CooldownScheduler getScheduler() {
+      return scheduler;
+    }
+
+    public CooldownClock getClock() {
+      return clock;
+    }
+
+    public ReplicatedCooldown<TKey> build() {
+      if (this.cooldown == null || this.codec == null || this.transport == null || this.channel == null)
+        throw new CooldownServiceException("A cooldown, a key codec and a transport are required");
+
+      CooldownClock clock = this.clock;
+      if (clock == null)
+        clock = this.cooldown instanceof AbstractCooldown<?> wrapped ? wrapped.getClock() : CooldownClock.system();
+
+      return new ReplicatedCooldown<TKey>(cooldown, codec, transport, channel, nodeId,
+          this.timeUnit.toMillis(this.defaultExpiryDuration), clock, scheduler,
+          Math.max(1L, this.flushIntervalUnit.toMillis(this.flushInterval)));
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package in.arcadelabs.labaide.cooldown.scheduler;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownScheduler;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the cooldown tasks on the Bukkit scheduler of the given plugin, so no extra thread is started at all.
+ * <p>
+ * Intervals are rounded down to whole server ticks (50 ms), with a minimum of one tick.
+ */
+public class BukkitCooldownScheduler implements CooldownScheduler {
+
+  private static final long MILLIS_PER_TICK = 50L;
+
+  private final Plugin plugin;
+  private final boolean async;
+  private final Set<BukkitTask> tasks = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param plugin The plugin owning the tasks
+   * @param async  Whether the tasks should run on the async scheduler instead of the main thread
+   */
+  public BukkitCooldownScheduler(Plugin plugin, boolean async) {
+    this.plugin = plugin;
+    this.async = async;
+  }
+
+  public BukkitCooldownScheduler(Plugin plugin) {
+    this(plugin, true);
+  }
+
+  @Override
+  public Task scheduleAtFixedRate(Runnable task, long interval, TimeUnit timeUnit) {
+    long ticks = Math.max(1L, timeUnit.toMillis(interval) / MILLIS_PER_TICK);
+    BukkitTask bukkitTask = this.async
+        ? this.plugin.getServer().getScheduler().runTaskTimerAsynchronously(this.plugin, task, ticks, ticks)
+        : this.plugin.getServer().getScheduler().runTaskTimer(this.plugin, task, ticks, ticks);
+    this.tasks.add(bukkitTask);
+    return () -> {
+      bukkitTask.cancel();
+      this.tasks.remove(bukkitTask);
+    };
+  }
+
+  /**
+   * Cancels the tasks started through this scheduler, other tasks of the plugin are left untouched
+   */
+  @Override
+  public void shutdown() {
+    this.tasks.forEach(BukkitTask::cancel);
+    this.tasks.clear();
+  }
+
+  /**
+   * @return Returns an executor running tasks on the main thread, such as for batched expiry actions
+   */
+  public Executor mainThreadExecutor() {
+    return task -> this.plugin.getServer().getScheduler().runTask(this.plugin, task);
+  }
+
+  public Plugin getPlugin() {
+    return plugin;
+  }
+
+  public boolean isAsync() {
+    return async;
+  }
+}
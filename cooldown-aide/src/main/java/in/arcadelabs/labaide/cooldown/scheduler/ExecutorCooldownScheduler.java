@@ -0,0 +1,42 @@
+package in.arcadelabs.labaide.cooldown.scheduler;
+
+import in.arcadelabs.labaide.cooldown.abstraction.CooldownScheduler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the cooldown tasks on a {@link ScheduledExecutorService}, by default a single daemon thread.
+ */
+public class ExecutorCooldownScheduler implements CooldownScheduler {
+
+  private final ScheduledExecutorService scheduledExecutorService;
+
+  public ExecutorCooldownScheduler() {
+    this(Executors.newSingleThreadScheduledExecutor(task -> {
+      Thread thread = new Thread(task, "LabAide-CooldownTicker");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * @param scheduledExecutorService The executor to run the tasks on, it is shut down along with this scheduler
+   */
+  public ExecutorCooldownScheduler(ScheduledExecutorService scheduledExecutorService) {
+    this.scheduledExecutorService = scheduledExecutorService;
+  }
+
+  @Override
+  public Task scheduleAtFixedRate(Runnable task, long interval, TimeUnit timeUnit) {
+    ScheduledFuture<?> future = this.scheduledExecutorService.scheduleAtFixedRate(task, interval, interval, timeUnit);
+    return () -> future.cancel(false);
+  }
+
+  @Override
+  public void shutdown() {
+    this.scheduledExecutorService.shutdown();
+  }
+}